@@ -0,0 +1,68 @@
+package com.changgou.benchmark;
+
+import com.changgou.seckill.web.limiter.LocalAccessLimiter;
+import com.changgou.seckill.web.limiter.RedisAccessLimiter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @Author: Haotian
+ * @Date: 2020/3/11 11:20
+ * @Description: 限流器基准测试,keys 为参与竞争的限流 key 数量
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Threads(8)
+@Fork(1)
+public class AccessLimitBenchmark {
+    @Param({"1", "10000"})
+    private int keys;
+    private AnnotationConfigApplicationContext context;
+    private LocalAccessLimiter localAccessLimiter;
+    private RedisAccessLimiter redisAccessLimiter;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkSupport.context();
+        localAccessLimiter = context.getBean( LocalAccessLimiter.class );
+        redisAccessLimiter = context.getBean( RedisAccessLimiter.class );
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public boolean local() {
+        return localAccessLimiter.tryAcquire( nextKey(), 1.0, 2 );
+    }
+
+    @Benchmark
+    public boolean redis() {
+        return redisAccessLimiter.tryAcquire( nextKey(), 1.0, 2 );
+    }
+
+    private String nextKey() {
+        return "benchmark_" + ThreadLocalRandom.current().nextInt( keys );
+    }
+}
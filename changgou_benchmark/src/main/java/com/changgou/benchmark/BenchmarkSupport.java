@@ -0,0 +1,88 @@
+package com.changgou.benchmark;
+
+import com.changgou.seckill.constant.SecKillOrderStatus;
+import com.changgou.seckill.pojo.SeckillGoods;
+import com.changgou.seckill.stock.SecKillStockReserver;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.data.redis.core.RedisTemplate;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Date;
+
+/**
+ * @Author: Haotian
+ * @Date: 2020/3/11 10:40
+ * @Description: 基准测试公共方法,准备与清理 redis 中的秒杀商品数据
+ */
+public class BenchmarkSupport {
+    /**
+     * redis 中秒杀商品 key 前缀
+     */
+    private static final String SEC_KILL_GOODS_KEY = "sec_kill_goods_key";
+    /**
+     * 基准测试使用的秒杀时间段
+     */
+    public static final String TIME = "2099010100";
+
+    private BenchmarkSupport() {
+    }
+
+    /**
+     * 创建基准测试 spring 容器
+     */
+    public static AnnotationConfigApplicationContext context() {
+        return new AnnotationConfigApplicationContext( SecKillBenchmarkConfig.class );
+    }
+
+    /**
+     * 将秒杀商品与库存写入 redis
+     *
+     * @param context    spring 容器
+     * @param id         商品id
+     * @param stockCount 库存
+     */
+    @SuppressWarnings("unchecked")
+    public static void loadGoods(AnnotationConfigApplicationContext context, Long id, int stockCount) {
+        clear( context, id );
+        RedisTemplate<Object, Object> redisTemplate = context.getBean( "redisTemplate", RedisTemplate.class );
+        SeckillGoods goods = SeckillGoods.builder()
+                .id( id )
+                .title( "benchmark" )
+                .costPrice( BigDecimal.ONE )
+                .sellerId( "benchmark" )
+                .startTime( new Date() )
+                .stockCount( stockCount ).build();
+        redisTemplate.opsForHash().put( SEC_KILL_GOODS_KEY + TIME, id, goods );
+        redisTemplate.opsForValue().set( SecKillStockReserver.SEC_KILL_GOODS_STOCK_COUNT_KEY + id, stockCount );
+    }
+
+    /**
+     * 读取 redis 中的剩余库存
+     *
+     * @param context spring 容器
+     * @param id      商品id
+     * @return 剩余库存
+     */
+    public static long stockCount(AnnotationConfigApplicationContext context, Long id) {
+        RedisTemplate redisTemplate = context.getBean( "redisTemplate", RedisTemplate.class );
+        Object stockCount = redisTemplate.opsForValue().get( SecKillStockReserver.SEC_KILL_GOODS_STOCK_COUNT_KEY + id );
+        return stockCount == null ? 0 : Long.parseLong( stockCount.toString() );
+    }
+
+    /**
+     * 清理 redis 中的秒杀商品数据
+     *
+     * @param context spring 容器
+     * @param id      商品id
+     */
+    @SuppressWarnings("unchecked")
+    public static void clear(AnnotationConfigApplicationContext context, Long id) {
+        RedisTemplate<Object, Object> redisTemplate = context.getBean( "redisTemplate", RedisTemplate.class );
+        redisTemplate.delete( SEC_KILL_GOODS_KEY + TIME );
+        redisTemplate.delete( Arrays.asList(
+                SecKillStockReserver.SEC_KILL_GOODS_STOCK_COUNT_KEY + id,
+                SecKillStockReserver.SEC_KILL_RESERVATION_KEY + id,
+                SecKillOrderStatus.SEC_KILL_ORDER_STATUS_KEY + id ) );
+    }
+}
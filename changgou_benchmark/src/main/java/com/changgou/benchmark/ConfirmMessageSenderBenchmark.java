@@ -0,0 +1,54 @@
+package com.changgou.benchmark;
+
+import com.changgou.seckill.config.ConfirmMessageSender;
+import com.changgou.seckill.config.RabbitMqConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @Author: Haotian
+ * @Date: 2020/3/11 11:40
+ * @Description: 可靠消息发送基准测试,mq 替身在发送后立即回调确认
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Threads(8)
+@Fork(1)
+public class ConfirmMessageSenderBenchmark {
+    private static final String MESSAGE = "{\"id\":1236542153214521345,\"seckillId\":9000000001,\"userId\":\"benchmark\"}";
+    private AnnotationConfigApplicationContext context;
+    private ConfirmMessageSender confirmMessageSender;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkSupport.context();
+        confirmMessageSender = context.getBean( ConfirmMessageSender.class );
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public void sendMessage() {
+        confirmMessageSender.sendMessage( "", RabbitMqConfig.SEC_KILL_ORDER_QUEUE, MESSAGE );
+    }
+}
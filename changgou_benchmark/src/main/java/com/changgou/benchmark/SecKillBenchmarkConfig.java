@@ -0,0 +1,81 @@
+package com.changgou.benchmark;
+
+import com.changgou.seckill.SecKillApplication;
+import com.changgou.seckill.config.ConfirmMessageSender;
+import com.changgou.seckill.service.impl.SecKillOrderServiceImpl;
+import com.changgou.seckill.stock.SecKillStockReserver;
+import com.changgou.seckill.stock.SoldOutFlags;
+import com.changgou.seckill.web.limiter.LocalAccessLimiter;
+import com.changgou.seckill.web.limiter.RedisAccessLimiter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+/**
+ * @Author: Haotian
+ * @Date: 2020/3/11 10:20
+ * @Description: 基准测试 spring 配置,连接本地 redis,mq 使用替身
+ * redis 地址通过 -Dredis.host 与 -Dredis.port 指定,默认 127.0.0.1:6379
+ */
+@Configuration
+public class SecKillBenchmarkConfig {
+
+    @Bean
+    public RedisConnectionFactory redisConnectionFactory() {
+        String host = System.getProperty( "redis.host", "127.0.0.1" );
+        int port = Integer.getInteger( "redis.port", 6379 );
+        return new LettuceConnectionFactory( new RedisStandaloneConfiguration( host, port ) );
+    }
+
+    /**
+     * 与秒杀服务相同的序列化设置
+     */
+    @Bean
+    public RedisTemplate<Object, Object> redisTemplate(RedisConnectionFactory redisConnectionFactory) {
+        return new SecKillApplication().redisTemplate( redisConnectionFactory );
+    }
+
+    @Bean
+    public StringRedisTemplate stringRedisTemplate(RedisConnectionFactory redisConnectionFactory) {
+        return new StringRedisTemplate( redisConnectionFactory );
+    }
+
+    @Bean
+    public StandInRabbitTemplate rabbitTemplate() {
+        return new StandInRabbitTemplate();
+    }
+
+    @Bean
+    public ConfirmMessageSender confirmMessageSender(StandInRabbitTemplate rabbitTemplate) {
+        return new ConfirmMessageSender( rabbitTemplate );
+    }
+
+    @Bean
+    public SoldOutFlags soldOutFlags() {
+        return new SoldOutFlags();
+    }
+
+    @Bean
+    public SecKillStockReserver secKillStockReserver() {
+        return new SecKillStockReserver();
+    }
+
+    @Bean
+    public SecKillOrderServiceImpl secKillOrderService() {
+        return new SecKillOrderServiceImpl();
+    }
+
+    @Bean
+    public LocalAccessLimiter localAccessLimiter() {
+        return new LocalAccessLimiter();
+    }
+
+    @Bean
+    public RedisAccessLimiter redisAccessLimiter() {
+        return new RedisAccessLimiter();
+    }
+}
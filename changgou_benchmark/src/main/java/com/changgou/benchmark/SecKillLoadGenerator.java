@@ -0,0 +1,102 @@
+package com.changgou.benchmark;
+
+import com.changgou.seckill.service.SecKillOrderService;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @Author: Haotian
+ * @Date: 2020/3/11 12:00
+ * @Description: 秒杀闭环压测工具,每个线程收到响应后再发起下一次请求,统计延迟分位与超卖
+ * 用法: java -cp target/benchmarks.jar com.changgou.benchmark.SecKillLoadGenerator [线程数] [请求数] [库存]
+ */
+public class SecKillLoadGenerator {
+    private static final Long GOODS_ID = 9000000003L;
+
+    public static void main(String[] args) throws InterruptedException {
+        int threads = args.length > 0 ? Integer.parseInt( args[0] ) : 200;
+        int requests = args.length > 1 ? Integer.parseInt( args[1] ) : 100000;
+        int stockCount = args.length > 2 ? Integer.parseInt( args[2] ) : 1000;
+
+        AnnotationConfigApplicationContext context = BenchmarkSupport.context();
+        try {
+            SecKillOrderService secKillOrderService = context.getBean( SecKillOrderService.class );
+            BenchmarkSupport.loadGoods( context, GOODS_ID, stockCount );
+
+            //1.每个请求使用不同的用户,按请求序号记录延迟
+            long[] latencies = new long[requests];
+            AtomicInteger sequence = new AtomicInteger();
+            LongAdder successes = new LongAdder();
+            LongAdder errors = new LongAdder();
+            CountDownLatch start = new CountDownLatch( 1 );
+            CountDownLatch done = new CountDownLatch( threads );
+            ExecutorService executor = Executors.newFixedThreadPool( threads );
+            for (int i = 0; i < threads; i++) {
+                executor.execute( () -> {
+                    try {
+                        start.await();
+                        int index;
+                        while ((index = sequence.getAndIncrement()) < requests) {
+                            long begin = System.nanoTime();
+                            try {
+                                if (secKillOrderService.add( GOODS_ID, BenchmarkSupport.TIME, "load_" + index )) {
+                                    successes.increment();
+                                }
+                            } catch (Exception e) {
+                                errors.increment();
+                            }
+                            latencies[index] = System.nanoTime() - begin;
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        done.countDown();
+                    }
+                } );
+            }
+
+            //2.同时开始压测
+            long begin = System.nanoTime();
+            start.countDown();
+            done.await();
+            long elapsed = System.nanoTime() - begin;
+            executor.shutdown();
+            executor.awaitTermination( 10, TimeUnit.SECONDS );
+
+            //3.统计结果,成功数超过库存或 redis 库存为负即为超卖
+            Arrays.sort( latencies );
+            long remaining = BenchmarkSupport.stockCount( context, GOODS_ID );
+            long oversold = Math.max( 0, successes.sum() - stockCount );
+            System.out.printf( "threads=%d requests=%d stock=%d elapsed=%dms throughput=%.0f/s%n",
+                    threads, requests, stockCount, TimeUnit.NANOSECONDS.toMillis( elapsed ),
+                    requests * 1e9 / elapsed );
+            System.out.printf( "success=%d errors=%d remaining=%d oversold=%d%n",
+                    successes.sum(), errors.sum(), remaining, oversold + Math.max( 0, -remaining ) );
+            System.out.printf( "latency p50=%.3fms p99=%.3fms p999=%.3fms max=%.3fms%n",
+                    percentile( latencies, 0.50 ), percentile( latencies, 0.99 ),
+                    percentile( latencies, 0.999 ), latencies[latencies.length - 1] / 1e6 );
+        } finally {
+            BenchmarkSupport.clear( context, GOODS_ID );
+            context.close();
+        }
+    }
+
+    /**
+     * 计算延迟分位值
+     *
+     * @param sorted   已排序的延迟(纳秒)
+     * @param quantile 分位
+     * @return 延迟(毫秒)
+     */
+    private static double percentile(long[] sorted, double quantile) {
+        int index = (int) Math.ceil( quantile * sorted.length ) - 1;
+        return sorted[Math.max( 0, index )] / 1e6;
+    }
+}
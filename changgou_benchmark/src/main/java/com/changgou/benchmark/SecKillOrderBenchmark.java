@@ -0,0 +1,71 @@
+package com.changgou.benchmark;
+
+import com.changgou.seckill.service.SecKillOrderService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @Author: Haotian
+ * @Date: 2020/3/11 11:00
+ * @Description: 秒杀下单基准测试,覆盖有库存时的预扣路径与售罄后的快速拒绝路径
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Threads(8)
+@Fork(1)
+public class SecKillOrderBenchmark {
+    /**
+     * 库存充足的商品id
+     */
+    private static final Long IN_STOCK_ID = 9000000001L;
+    /**
+     * 已售罄的商品id
+     */
+    private static final Long SOLD_OUT_ID = 9000000002L;
+    private final AtomicLong users = new AtomicLong();
+    private AnnotationConfigApplicationContext context;
+    private SecKillOrderService secKillOrderService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkSupport.context();
+        secKillOrderService = context.getBean( SecKillOrderService.class );
+        BenchmarkSupport.loadGoods( context, IN_STOCK_ID, Integer.MAX_VALUE );
+        BenchmarkSupport.loadGoods( context, SOLD_OUT_ID, 0 );
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkSupport.clear( context, IN_STOCK_ID );
+        BenchmarkSupport.clear( context, SOLD_OUT_ID );
+        context.close();
+    }
+
+    @Benchmark
+    public boolean addInStock() {
+        return secKillOrderService.add( IN_STOCK_ID, BenchmarkSupport.TIME, "benchmark_" + users.incrementAndGet() );
+    }
+
+    @Benchmark
+    public boolean addSoldOut() {
+        return secKillOrderService.add( SOLD_OUT_ID, BenchmarkSupport.TIME, "benchmark_" + users.incrementAndGet() );
+    }
+}
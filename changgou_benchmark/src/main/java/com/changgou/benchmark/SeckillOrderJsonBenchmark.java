@@ -0,0 +1,49 @@
+package com.changgou.benchmark;
+
+import com.alibaba.fastjson.JSON;
+import com.changgou.seckill.pojo.SeckillOrder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @Author: Haotian
+ * @Date: 2020/3/11 11:30
+ * @Description: 秒杀订单消息序列化基准测试
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SeckillOrderJsonBenchmark {
+    private final SeckillOrder seckillOrder = SeckillOrder.builder()
+            .id( 1236542153214521345L )
+            .seckillId( 9000000001L )
+            .money( new BigDecimal( "99.00" ) )
+            .userId( "benchmark" )
+            .createTime( new Date() )
+            .status( "0" ).build();
+    private final String json = JSON.toJSONString( seckillOrder );
+
+    @Benchmark
+    public String toJson() {
+        return JSON.toJSONString( seckillOrder );
+    }
+
+    @Benchmark
+    public SeckillOrder parse() {
+        return JSON.parseObject( json, SeckillOrder.class );
+    }
+}
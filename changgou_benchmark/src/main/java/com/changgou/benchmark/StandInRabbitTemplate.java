@@ -0,0 +1,46 @@
+package com.changgou.benchmark;
+
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @Author: Haotian
+ * @Date: 2020/3/11 10:10
+ * @Description: 基准测试用的 RabbitTemplate 替身,不连接 mq,发送即确认
+ */
+public class StandInRabbitTemplate extends RabbitTemplate {
+    private final LongAdder sent = new LongAdder();
+    private ConfirmCallback confirmCallback;
+
+    @Override
+    public void afterPropertiesSet() {
+        //替身不需要连接工厂
+    }
+
+    @Override
+    public void setConfirmCallback(ConfirmCallback confirmCallback) {
+        this.confirmCallback = confirmCallback;
+    }
+
+    @Override
+    public void convertAndSend(String exchange, String routingKey, Object object) {
+        sent.increment();
+    }
+
+    @Override
+    public void convertAndSend(String exchange, String routingKey, Object object, CorrelationData correlationData) {
+        sent.increment();
+        if (confirmCallback != null && correlationData != null) {
+            confirmCallback.confirm( correlationData, true, null );
+        }
+    }
+
+    /**
+     * 已发送消息数
+     */
+    public long sent() {
+        return sent.sum();
+    }
+}
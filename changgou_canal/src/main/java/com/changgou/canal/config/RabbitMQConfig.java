@@ -27,6 +27,7 @@ public class RabbitMQConfig {
     public static final String SEARCH_ADD_QUEUE = "search_add_queue";
     public static final String SEARCH_DEL_QUEUE = "search_del_queue";
     public static final String PAGE_CREATE_QUEUE = "page_create_queue";
+    public static final String ORDER_STATUS_STAT_QUEUE = "order_status_stat_queue";
 
     /**
      * 声明队列
@@ -55,6 +56,12 @@ public class RabbitMQConfig {
         return new Queue( PAGE_CREATE_QUEUE );
     }
 
+    @Bean(ORDER_STATUS_STAT_QUEUE)
+    public Queue order_status_stat_queue() {
+        // 订单状态统计队列
+        return new Queue( ORDER_STATUS_STAT_QUEUE );
+    }
+
     /**
      * 声明交换机
      */
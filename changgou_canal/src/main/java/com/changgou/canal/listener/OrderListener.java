@@ -0,0 +1,76 @@
+package com.changgou.canal.listener;
+
+import com.alibaba.otter.canal.protocol.CanalEntry;
+import com.changgou.canal.config.RabbitMQConfig;
+import com.xpand.starter.canal.annotation.CanalEventListener;
+import com.xpand.starter.canal.annotation.ListenPoint;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 订单状态变化监听类，将订单在按小时统计表中的增减量发送到mq
+ * 订单按 update_time 所在小时与当前状态计数，状态或更新时间变化时旧统计减一、新统计加一
+ *
+ * @author Haotian
+ * @version 1.0.0
+ * @date 2020/8/10 10:20
+ **/
+@CanalEventListener
+@Slf4j
+public class OrderListener {
+    private static final String UPDATE_TIME = "update_time";
+    private static final String ORDER_STATUS = "order_status";
+    private static final String PAY_STATUS = "pay_status";
+    private static final String CONSIGN_STATUS = "consign_status";
+
+    @Autowired
+    private RabbitTemplate rabbitTemplate;
+
+    @ListenPoint(schema = "changgou_order", table = "tb_order")
+    public void orderStatusChange(CanalEntry.EventType eventType, CanalEntry.RowData rowData) {
+        // 获取改变之前的统计项,新增时为空
+        String oldStat = statOf( rowData.getBeforeColumnsList() );
+        // 获取改变之后的统计项,删除时为空
+        String newStat = statOf( rowData.getAfterColumnsList() );
+        if (oldStat != null && oldStat.equals( newStat )) {
+            return;
+        }
+        List<String> deltas = new ArrayList<>( 2 );
+        if (oldStat != null) {
+            deltas.add( String.format( oldStat, -1 ) );
+        }
+        if (newStat != null) {
+            deltas.add( String.format( newStat, 1 ) );
+        }
+        if (!deltas.isEmpty()) {
+            rabbitTemplate.convertAndSend( "", RabbitMQConfig.ORDER_STATUS_STAT_QUEUE, "[" + String.join( ",", deltas ) + "]" );
+        }
+    }
+
+    /**
+     * 订单所在的统计项,格式为统计json模板,数量待填充
+     *
+     * @param columns 订单数据
+     * @return 统计项,无数据或更新时间为空时返回null
+     */
+    private String statOf(List<CanalEntry.Column> columns) {
+        if (columns.isEmpty()) {
+            return null;
+        }
+        Map<String, String> data = new HashMap<>( columns.size() * 2 );
+        columns.forEach( c -> data.put( c.getName(), c.getValue() ) );
+        String updateTime = data.get( UPDATE_TIME );
+        if (updateTime == null || updateTime.length() < 13) {
+            return null;
+        }
+        // 统计到小时 yyyy-MM-dd HH:00:00
+        return String.format( "{\"statHour\":\"%s:00:00\",\"orderStatus\":\"%s\",\"payStatus\":\"%s\",\"consignStatus\":\"%s\",\"num\":%%d}",
+                updateTime.substring( 0, 13 ), data.get( ORDER_STATUS ), data.get( PAY_STATUS ), data.get( CONSIGN_STATUS ) );
+    }
+}
@@ -0,0 +1,31 @@
+package com.changgou.common.pojo;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 游标分页结果
+ *
+ * @author Haotian
+ * @version 1.0.0
+ * @date 2020/8/12 14:05
+ **/
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CursorResult<T> {
+    /**
+     * 下一页游标，没有下一页时为空
+     */
+    private String nextCursor;
+
+    /**
+     * 记录
+     */
+    private List<T> rows;
+}
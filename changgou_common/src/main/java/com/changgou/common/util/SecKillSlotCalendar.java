@@ -0,0 +1,180 @@
+package com.changgou.common.util;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @Author: Haotian
+ * @Date: 2020/3/11 15:10
+ * @Description: 秒杀时间段日历,缓存当前时间段起的时间菜单,只在跨越时间段边界时重新计算
+ */
+public final class SecKillSlotCalendar {
+    /**
+     * 每个时间段的小时数
+     */
+    public static final int SLOT_HOURS = 2;
+    /**
+     * 时间菜单显示的时间段数
+     */
+    public static final int MENU_SIZE = 5;
+    /**
+     * 时间段key格式,用于redis中key的设置
+     */
+    private static final DateTimeFormatter SLOT_KEY_FORMATTER = DateTimeFormatter.ofPattern( "yyyyMMddHH" );
+    /**
+     * 时间段显示格式
+     */
+    private static final DateTimeFormatter LABEL_FORMATTER = DateTimeFormatter.ofPattern( "yyyy-MM-dd HH:mm:ss" );
+    /**
+     * 页面传入的时间段格式
+     */
+    private static final DateTimeFormatter MENU_FORMATTER = DateTimeFormatter.ofPattern( "yyyy-MM-dd HH:mm" );
+    private static volatile Snapshot snapshot;
+
+    private SecKillSlotCalendar() {
+    }
+
+    /**
+     * 获取从当前时间段起的时间段集合
+     */
+    public static List<Slot> slots() {
+        return current().slots;
+    }
+
+    /**
+     * 获取时间菜单,格式 yyyy-MM-dd HH:mm:ss
+     */
+    public static List<String> menuLabels() {
+        return current().labels;
+    }
+
+    /**
+     * 获取指定时间所在时间段起的时间段集合,不使用缓存
+     *
+     * @param now 时间戳
+     */
+    static List<Slot> slots(long now) {
+        return new Snapshot( now ).slots;
+    }
+
+    /**
+     * 获取指定时间的时间菜单,不使用缓存
+     *
+     * @param now 时间戳
+     */
+    static List<String> menuLabels(long now) {
+        return new Snapshot( now ).labels;
+    }
+
+    /**
+     * 从yyyy-MM-dd HH:mm格式转成yyyyMMddHH格式,时间菜单内的时间段直接查表
+     *
+     * @param time 时间段
+     * @return 时间段key,格式错误时返回null
+     */
+    public static String slotKey(String time) {
+        if (time == null) {
+            return null;
+        }
+        String slotKey = current().slotKeys.get( time );
+        if (slotKey != null) {
+            return slotKey;
+        }
+        try {
+            return LocalDateTime.parse( time.length() > 16 ? time.substring( 0, 16 ) : time, MENU_FORMATTER ).format( SLOT_KEY_FORMATTER );
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    private static Snapshot current() {
+        Snapshot current = snapshot;
+        long now = System.currentTimeMillis();
+        if (current == null || now < current.start || now >= current.end) {
+            //跨越时间段边界,重新计算,并发重算的结果相同
+            current = new Snapshot( now );
+            snapshot = current;
+        }
+        return current;
+    }
+
+    /**
+     * 秒杀时间段
+     */
+    public static final class Slot {
+        private final String key;
+        private final String startTime;
+        private final String endTime;
+
+        private Slot(String key, String startTime, String endTime) {
+            this.key = key;
+            this.startTime = startTime;
+            this.endTime = endTime;
+        }
+
+        /**
+         * 时间段key 格式 yyyyMMddHH
+         */
+        public String getKey() {
+            return key;
+        }
+
+        /**
+         * 时间段开始时间 格式 yyyy-MM-dd HH:mm:ss
+         */
+        public String getStartTime() {
+            return startTime;
+        }
+
+        /**
+         * 时间段结束时间 格式 yyyy-MM-dd HH:mm:ss
+         */
+        public String getEndTime() {
+            return endTime;
+        }
+    }
+
+    /**
+     * 不可变的时间菜单快照
+     */
+    private static final class Snapshot {
+        private final long start;
+        private final long end;
+        private final List<Slot> slots;
+        private final List<String> labels;
+        private final Map<String, String> slotKeys;
+
+        private Snapshot(long now) {
+            ZoneId zone = ZoneId.systemDefault();
+            LocalDateTime time = LocalDateTime.ofInstant( Instant.ofEpochMilli( now ), zone );
+            //当前时间所在时间段的开始时间
+            LocalDateTime slotStart = time.truncatedTo( ChronoUnit.DAYS ).plusHours( time.getHour() / SLOT_HOURS * SLOT_HOURS );
+            this.start = slotStart.atZone( zone ).toInstant().toEpochMilli();
+            this.end = slotStart.plusHours( SLOT_HOURS ).atZone( zone ).toInstant().toEpochMilli();
+            List<Slot> slots = new ArrayList<>( MENU_SIZE );
+            List<String> labels = new ArrayList<>( MENU_SIZE );
+            Map<String, String> slotKeys = new HashMap<>( MENU_SIZE * 4 );
+            for (int i = 0; i < MENU_SIZE; i++) {
+                LocalDateTime begin = slotStart.plusHours( (long) i * SLOT_HOURS );
+                String key = begin.format( SLOT_KEY_FORMATTER );
+                String label = begin.format( LABEL_FORMATTER );
+                slots.add( new Slot( key, label, begin.plusHours( SLOT_HOURS ).format( LABEL_FORMATTER ) ) );
+                labels.add( label );
+                slotKeys.put( label, key );
+                slotKeys.put( begin.format( MENU_FORMATTER ), key );
+            }
+            this.slots = Collections.unmodifiableList( slots );
+            this.labels = Collections.unmodifiableList( labels );
+            this.slotKeys = slotKeys;
+        }
+    }
+}
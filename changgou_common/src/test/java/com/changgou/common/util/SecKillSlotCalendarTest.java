@@ -0,0 +1,65 @@
+package com.changgou.common.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 秒杀时间段日历
+ *
+ * @author Haotian
+ * @version 1.0.0
+ * @date 2020/3/11 15:40
+ **/
+public class SecKillSlotCalendarTest {
+    /**
+     * 固定的当前时间 2020-03-11 15:30,位于 14:00 开始的时间段内
+     */
+    private static final long NOW = millis( LocalDateTime.of( 2020, 3, 11, 15, 30 ) );
+
+    @Test
+    public void slotsMatchDateMenus() {
+        List<SecKillSlotCalendar.Slot> slots = SecKillSlotCalendar.slots( NOW );
+        List<String> labels = SecKillSlotCalendar.menuLabels( NOW );
+        Assert.assertEquals( SecKillSlotCalendar.MENU_SIZE, slots.size() );
+        Assert.assertEquals( Arrays.asList( "2020-03-11 14:00:00", "2020-03-11 16:00:00", "2020-03-11 18:00:00",
+                "2020-03-11 20:00:00", "2020-03-11 22:00:00" ), labels );
+        Assert.assertEquals( "2020031114", slots.get( 0 ).getKey() );
+        Assert.assertEquals( "2020031122", slots.get( 4 ).getKey() );
+        for (int i = 0; i < slots.size(); i++) {
+            Assert.assertEquals( labels.get( i ), slots.get( i ).getStartTime() );
+            if (i > 0) {
+                Assert.assertEquals( slots.get( i - 1 ).getEndTime(), slots.get( i ).getStartTime() );
+            }
+        }
+    }
+
+    @Test
+    public void slotBoundary() {
+        long boundary = millis( LocalDateTime.of( 2020, 3, 11, 16, 0 ) );
+        Assert.assertEquals( "2020031114", SecKillSlotCalendar.slots( boundary - 1 ).get( 0 ).getKey() );
+        Assert.assertEquals( "2020031116", SecKillSlotCalendar.slots( boundary ).get( 0 ).getKey() );
+        //跨天的时间菜单
+        Assert.assertEquals( "2020031200", SecKillSlotCalendar.slots( millis( LocalDateTime.of( 2020, 3, 11, 23, 59 ) ) ).get( 1 ).getKey() );
+    }
+
+    @Test
+    public void slotKey() {
+        Assert.assertEquals( "2020031114", SecKillSlotCalendar.slotKey( "2020-03-11 14:00" ) );
+        Assert.assertEquals( "2020031114", SecKillSlotCalendar.slotKey( "2020-03-11 14:00:00" ) );
+        String label = SecKillSlotCalendar.menuLabels( NOW ).get( 1 );
+        Assert.assertEquals( SecKillSlotCalendar.slots( NOW ).get( 1 ).getKey(), SecKillSlotCalendar.slotKey( label.substring( 0, 16 ) ) );
+        //带秒的完整菜单时间,与解析结果一致
+        String currentLabel = SecKillSlotCalendar.menuLabels( NOW ).get( 0 );
+        Assert.assertEquals( "2020031114", SecKillSlotCalendar.slotKey( currentLabel ) );
+        Assert.assertNull( SecKillSlotCalendar.slotKey( "14:00" ) );
+    }
+
+    private static long millis(LocalDateTime time) {
+        return time.atZone( ZoneId.systemDefault() ).toInstant().toEpochMilli();
+    }
+}
@@ -1,9 +1,22 @@
 package com.changgou.consumer.config;
 
+import org.springframework.amqp.core.AcknowledgeMode;
+import org.springframework.amqp.core.BindingBuilder;
+import org.springframework.amqp.core.Declarable;
+import org.springframework.amqp.core.Declarables;
+import org.springframework.amqp.core.DirectExchange;
 import org.springframework.amqp.core.Queue;
+import org.springframework.amqp.core.QueueBuilder;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * @Author: Haotian
  * @Date: 2020/3/6 17:55
@@ -15,6 +28,23 @@ public class RabbitMqConfig {
      * 秒杀消息队列
      */
     public static final String SEC_KILL_ORDER_QUEUE = "sec_kill_order_queue";
+    /**
+     * 秒杀订单重试交换机
+     */
+    public static final String SEC_KILL_ORDER_RETRY_EXCHANGE = "sec_kill_order_retry_exchange";
+    /**
+     * 秒杀订单重试延迟队列前缀,队列名带有延迟时间,调整延迟时间时声明新队列
+     */
+    public static final String SEC_KILL_ORDER_RETRY_QUEUE = "sec_kill_order_retry_queue_";
+    /**
+     * 秒杀订单停放队列,超过最大重试次数的消息停放在此等待人工处理
+     */
+    public static final String SEC_KILL_ORDER_PARKING_QUEUE = "sec_kill_order_parking_queue";
+
+    /**
+     * 秒杀订单批量消费监听容器工厂
+     */
+    public static final String BATCH_CONTAINER_FACTORY = "batchContainerFactory";
 
     /**
      * 声明持久化队列
@@ -23,4 +53,58 @@ public class RabbitMqConfig {
     public Queue queue() {
         return new Queue( SEC_KILL_ORDER_QUEUE, true );
     }
+
+    /**
+     * 声明重试交换机、各级延迟队列与停放队列
+     * 延迟队列中的消息过期后经默认交换机投递回秒杀消息队列
+     */
+    @Bean
+    public Declarables retryDeclarables(@Value("${seckill.consume.retry.delays:1000,5000,25000}") long[] delays) {
+        List<Declarable> declarables = new ArrayList<>();
+        DirectExchange retryExchange = new DirectExchange( SEC_KILL_ORDER_RETRY_EXCHANGE, true, false );
+        declarables.add( retryExchange );
+        for (long delay : delays) {
+            Queue retryQueue = QueueBuilder.durable( retryQueue( delay ) )
+                    .withArgument( "x-message-ttl", delay )
+                    .withArgument( "x-dead-letter-exchange", "" )
+                    .withArgument( "x-dead-letter-routing-key", SEC_KILL_ORDER_QUEUE ).build();
+            declarables.add( retryQueue );
+            declarables.add( BindingBuilder.bind( retryQueue ).to( retryExchange ).with( retryQueue( delay ) ) );
+        }
+        declarables.add( new Queue( SEC_KILL_ORDER_PARKING_QUEUE, true ) );
+        return new Declarables( declarables );
+    }
+
+    /**
+     * 获取重试延迟队列名,同时作为绑定路由key
+     *
+     * @param delay 延迟时间,单位毫秒
+     * @return 队列名
+     */
+    public static String retryQueue(long delay) {
+        return SEC_KILL_ORDER_RETRY_QUEUE + delay;
+    }
+
+    /**
+     * 批量消费监听容器工厂,每次最多拉取batchSize条消息或等待receiveTimeout毫秒后交给监听方法处理
+     */
+    @Bean(BATCH_CONTAINER_FACTORY)
+    @ConditionalOnProperty(name = "seckill.consume.batch.enabled", havingValue = "true")
+    public SimpleRabbitListenerContainerFactory batchContainerFactory(ConnectionFactory connectionFactory,
+                                                                      @Value("${seckill.consume.batch.size:100}") int batchSize,
+                                                                      @Value("${seckill.consume.batch.receive-timeout:50}") long receiveTimeout,
+                                                                      @Value("${seckill.consume.batch.concurrency:4}") int concurrency) {
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        factory.setConnectionFactory( connectionFactory );
+        factory.setAcknowledgeMode( AcknowledgeMode.MANUAL );
+        factory.setBatchListener( true );
+        factory.setConsumerBatchEnabled( true );
+        factory.setBatchSize( batchSize );
+        factory.setReceiveTimeout( receiveTimeout );
+        factory.setConcurrentConsumers( concurrency );
+        factory.setMaxConcurrentConsumers( concurrency );
+        //预取数量至少容纳两批消息,消费当前批次时下一批已在本地
+        factory.setPrefetchCount( batchSize * 2 );
+        return factory;
+    }
 }
\ No newline at end of file
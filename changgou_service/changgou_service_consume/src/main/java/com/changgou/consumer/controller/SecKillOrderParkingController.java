@@ -0,0 +1,38 @@
+package com.changgou.consumer.controller;
+
+import com.changgou.common.pojo.Result;
+import com.changgou.common.pojo.StatusCode;
+import com.changgou.consumer.service.SecKillOrderRetryService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * @Author: Haotian
+ * @Date: 2020/3/11 17:50
+ * @Description: 秒杀订单停放消息处理接口
+ */
+@RestController
+@RequestMapping("/secKillOrder/parking")
+public class SecKillOrderParkingController {
+    @Autowired
+    private SecKillOrderRetryService secKillOrderRetryService;
+
+    /**
+     * 将停放的秒杀订单消息重新投递到秒杀消息队列
+     *
+     * @param count 最多重新投递的消息数
+     * @return 实际重新投递的消息数
+     */
+    @PostMapping("/replay")
+    public Result<Integer> replay(@RequestParam(value = "count", defaultValue = "100") Integer count) {
+        int replayed = secKillOrderRetryService.replay( count );
+        return Result.<Integer>builder()
+                .flag( true )
+                .code( StatusCode.OK )
+                .data( replayed )
+                .message( "重新投递停放消息" + replayed + "条" ).build();
+    }
+}
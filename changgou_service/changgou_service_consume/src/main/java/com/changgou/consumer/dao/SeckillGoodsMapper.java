@@ -19,4 +19,14 @@ public interface SeckillGoodsMapper extends Mapper<SeckillGoods> {
      */
     @Update("update tb_seckill_goods set stock_count=stock_count-1 where id=#{id} and stock_count>=1")
     int updateStockCount(@Param("id") Long id);
+
+    /**
+     * 批量扣减秒杀商品库存
+     *
+     * @param id    商品id
+     * @param count 扣减数量
+     * @return 影响行数
+     */
+    @Update("update tb_seckill_goods set stock_count=stock_count-#{count} where id=#{id} and stock_count>=#{count}")
+    int updateStockCountBy(@Param("id") Long id, @Param("count") int count);
 }
\ No newline at end of file
@@ -1,13 +1,38 @@
 package com.changgou.consumer.dao;
 
 import com.changgou.seckill.pojo.SeckillOrder;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
 import tk.mybatis.mapper.common.Mapper;
 
+import java.util.List;
+
 /**
  * @Author: Haotian
  * @Date: 2020/3/5 16:43
  * @Description: 秒杀订单通用接口
  **/
 public interface SeckillOrderMapper extends Mapper<SeckillOrder> {
+    /**
+     * 批量新增秒杀订单
+     *
+     * @param orders 秒杀订单集合
+     * @return 影响行数
+     */
+    @Insert("<script>insert into tb_seckill_order(id,seckill_id,money,user_id,seller_id,create_time,status) values " +
+            "<foreach collection='orders' item='o' separator=','>" +
+            "(#{o.id},#{o.seckillId},#{o.money},#{o.userId},#{o.sellerId},#{o.createTime},#{o.status})" +
+            "</foreach></script>")
+    int insertBatch(@Param("orders") List<SeckillOrder> orders);
 
+    /**
+     * 查询已写入的秒杀订单id,重复投递的消息不再重复扣减库存
+     *
+     * @param ids 订单id集合
+     * @return 已存在的订单id
+     */
+    @Select("<script>select id from tb_seckill_order where id in " +
+            "<foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach></script>")
+    List<Long> findExistingIds(@Param("ids") List<Long> ids);
 }
\ No newline at end of file
@@ -0,0 +1,137 @@
+package com.changgou.consumer.listener;
+
+import com.alibaba.fastjson.JSON;
+import com.changgou.consumer.config.RabbitMqConfig;
+import com.changgou.consumer.service.SecKillOrderResultService;
+import com.changgou.consumer.service.SecKillOrderRetryService;
+import com.changgou.consumer.service.SecKillOrderService;
+import com.changgou.seckill.pojo.SeckillOrder;
+import com.rabbitmq.client.Channel;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * @Author: Haotian
+ * @Date: 2020/3/9 10:30
+ * @Description: 秒杀消息批量监听类,mysql写入频率由每单一次降为每批一次
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "seckill.consume.batch.enabled", havingValue = "true")
+public class BatchConsumerListener {
+    @Autowired
+    private SecKillOrderService secKillOrderService;
+    @Autowired
+    private SecKillOrderResultService secKillOrderResultService;
+    @Autowired
+    private SecKillOrderRetryService secKillOrderRetryService;
+
+    @RabbitListener(queues = RabbitMqConfig.SEC_KILL_ORDER_QUEUE, containerFactory = RabbitMqConfig.BATCH_CONTAINER_FACTORY)
+    public void receiveSecKillOrderMessages(List<Message> messages, Channel channel) {
+        if (messages.isEmpty()) {
+            return;
+        }
+        long lastDeliveryTag = messages.get( messages.size() - 1 ).getMessageProperties().getDeliveryTag();
+        //重试或停放未得到 mq 确认的消息,拒绝并重新入队
+        Set<Long> requeueTags = new HashSet<>();
+        //1.转换消息格式,无法解析的消息直接停放
+        List<Message> parsedMessages = new ArrayList<>( messages.size() );
+        List<SeckillOrder> seckillOrders = new ArrayList<>( messages.size() );
+        for (Message message : messages) {
+            try {
+                seckillOrders.add( JSON.parseObject( message.getBody(), SeckillOrder.class ) );
+                parsedMessages.add( message );
+            } catch (RuntimeException e) {
+                park( message, e, requeueTags );
+            }
+        }
+        //2.批量扣减mysql中的库存并写入订单,只有数据库调用失败时才逐条重新处理
+        List<SeckillOrder> createdOrders = new ArrayList<>( seckillOrders.size() );
+        List<SeckillOrder> failedOrders = new ArrayList<>();
+        try {
+            createOrders( seckillOrders, createdOrders, failedOrders );
+        } catch (RuntimeException e) {
+            //事务已回滚,逐条重新处理,只有处理失败的消息进入延迟重试
+            log.error( "秒杀订单批量同步失败，共{}条消息，逐条重新处理", seckillOrders.size(), e );
+            createdOrders.clear();
+            failedOrders.clear();
+            for (int i = 0; i < seckillOrders.size(); i++) {
+                try {
+                    createOrders( Collections.singletonList( seckillOrders.get( i ) ), createdOrders, failedOrders );
+                } catch (RuntimeException ex) {
+                    retry( parsedMessages.get( i ), ex, requeueTags );
+                }
+            }
+        }
+        //3.更新订单状态,订单已落库,状态写入失败只重试状态写入,不再重新处理消息
+        secKillOrderResultService.updateStatus( createdOrders, failedOrders );
+        //4.重新投递均已确认时一次确认整批消息,否则逐条确认,未确认投递的消息重新入队
+        try {
+            if (requeueTags.isEmpty()) {
+                channel.basicAck( lastDeliveryTag, true );
+                return;
+            }
+            for (Message message : messages) {
+                long deliveryTag = message.getMessageProperties().getDeliveryTag();
+                if (requeueTags.contains( deliveryTag )) {
+                    channel.basicNack( deliveryTag, false, true );
+                } else {
+                    channel.basicAck( deliveryTag, false );
+                }
+            }
+        } catch (IOException e) {
+            log.error( "秒杀订单批量应答失败", e );
+        }
+    }
+
+    private void retry(Message message, RuntimeException cause, Set<Long> requeueTags) {
+        try {
+            secKillOrderRetryService.retry( message, cause );
+        } catch (AmqpException e) {
+            log.error( "秒杀订单消息重试投递失败，消息重新入队", e );
+            requeueTags.add( message.getMessageProperties().getDeliveryTag() );
+        }
+    }
+
+    private void park(Message message, RuntimeException cause, Set<Long> requeueTags) {
+        try {
+            secKillOrderRetryService.park( message, cause );
+        } catch (AmqpException e) {
+            log.error( "秒杀订单消息停放失败，消息重新入队", e );
+            requeueTags.add( message.getMessageProperties().getDeliveryTag() );
+        }
+    }
+
+    /**
+     * 批量扣减mysql中的库存并写入订单,按结果分为下单成功与库存不足两组
+     *
+     * @param seckillOrders 秒杀订单集合
+     * @param createdOrders 下单成功的订单
+     * @param failedOrders  mysql库存不足的订单
+     */
+    private void createOrders(List<SeckillOrder> seckillOrders, List<SeckillOrder> createdOrders, List<SeckillOrder> failedOrders) {
+        if (seckillOrders.isEmpty()) {
+            return;
+        }
+        Set<Long> failedOrderIds = new HashSet<>( secKillOrderService.createOrders( seckillOrders ) );
+        for (SeckillOrder seckillOrder : seckillOrders) {
+            if (failedOrderIds.contains( seckillOrder.getId() )) {
+                failedOrders.add( seckillOrder );
+            } else {
+                createdOrders.add( seckillOrder );
+            }
+        }
+    }
+}
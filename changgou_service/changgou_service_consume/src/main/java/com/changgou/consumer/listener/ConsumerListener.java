@@ -2,55 +2,87 @@ package com.changgou.consumer.listener;
 
 import com.alibaba.fastjson.JSON;
 import com.changgou.consumer.config.RabbitMqConfig;
+import com.changgou.consumer.service.SecKillOrderResultService;
+import com.changgou.consumer.service.SecKillOrderRetryService;
 import com.changgou.consumer.service.SecKillOrderService;
 import com.changgou.seckill.pojo.SeckillOrder;
 import com.rabbitmq.client.Channel;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.AmqpException;
 import org.springframework.amqp.core.Message;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
 
 import java.io.IOException;
+import java.util.Collections;
 
 /**
  * @Author: Haotian
  * @Date: 2020/3/6 19:20
  * @Description: 秒杀消息监听类
  */
+@Slf4j
 @Component
+@ConditionalOnProperty(name = "seckill.consume.batch.enabled", havingValue = "false", matchIfMissing = true)
 public class ConsumerListener {
     @Autowired
     private SecKillOrderService secKillOrderService;
+    @Autowired
+    private SecKillOrderResultService secKillOrderResultService;
+    @Autowired
+    private SecKillOrderRetryService secKillOrderRetryService;
 
     @RabbitListener(queues = RabbitMqConfig.SEC_KILL_ORDER_QUEUE)
     public void receiveSecKillOrderMessage(Message message, Channel channel) {
-        //设置消息抓取总数
+        long deliveryTag = message.getMessageProperties().getDeliveryTag();
+        try {
+            handle( message );
+        } catch (AmqpException e) {
+            //重试或停放消息未得到 mq 确认,拒绝原消息并重新入队,避免消息丢失
+            log.error( "秒杀订单消息重新投递失败，消息重新入队", e );
+            try {
+                channel.basicNack( deliveryTag, false, true );
+            } catch (IOException ex) {
+                log.error( "秒杀订单消息拒绝失败", ex );
+            }
+            return;
+        }
+        //向mq返回成功通知
         try {
-            channel.basicQos( 300 );
+            channel.basicAck( deliveryTag, false );
         } catch (IOException e) {
             e.printStackTrace();
         }
-        //1.转换消息格式
-        SeckillOrder seckillOrder = JSON.parseObject( message.getBody(), SeckillOrder.class );
-        //2.接收消息，进行异步下单扣减mysql中的库存数
-        int result = secKillOrderService.createOrder( seckillOrder );
+    }
+
+    private void handle(Message message) {
+        //1.转换消息格式,无法解析的消息直接停放
+        SeckillOrder seckillOrder;
+        try {
+            seckillOrder = JSON.parseObject( message.getBody(), SeckillOrder.class );
+        } catch (RuntimeException e) {
+            secKillOrderRetryService.park( message, e );
+            return;
+        }
+        //2.接收消息，进行异步下单扣减mysql中的库存数,只有数据库调用失败时消息才进入延迟重试
+        int result;
+        try {
+            result = secKillOrderService.createOrder( seckillOrder );
+        } catch (RuntimeException e) {
+            //处理异常的消息延迟重试，不再回到队列头部阻塞后续消息
+            log.error( "秒杀订单同步失败，消息延迟重试", e );
+            secKillOrderRetryService.retry( message, e );
+            return;
+        }
+        //3.更新订单状态,订单已落库,状态写入失败只重试状态写入,不再重新处理消息
         if (result > 0) {
-            //同步mysql成功，向mq返回成功通知
-            try {
-                channel.basicAck( message.getMessageProperties().getDeliveryTag(), false );
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
+            //同步mysql成功，更新订单状态为下单成功
+            secKillOrderResultService.updateStatus( Collections.singletonList( seckillOrder ), Collections.emptyList() );
         } else {
-            //同步失败，向mq返回失败通知
-            try {
-                /*
-                 * 第三个参数：false当前消息作为一个死信消息，如果没有绑定死信交换机，消息将会丢弃。true消息会回到原有队列中，默认回到头部。
-                 */
-                channel.basicNack( message.getMessageProperties().getDeliveryTag(), false, true );
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
+            //mysql库存不足，订单状态更新为下单失败并回补redis库存，消息不再重新投递
+            secKillOrderResultService.updateStatus( Collections.emptyList(), Collections.singletonList( seckillOrder ) );
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,34 @@
+package com.changgou.consumer.service;
+
+import com.changgou.seckill.pojo.SeckillOrder;
+
+import java.util.List;
+
+/**
+ * @Author: Haotian
+ * @Date: 2020/3/9 16:20
+ * @Description: 秒杀订单处理结果服务
+ */
+public interface SecKillOrderResultService {
+    /**
+     * 标记秒杀订单下单成功
+     *
+     * @param seckillOrders 秒杀订单集合
+     */
+    void markSuccess(List<SeckillOrder> seckillOrders);
+
+    /**
+     * 标记秒杀订单下单失败,并回补redis中预占的库存
+     *
+     * @param seckillOrders 秒杀订单集合
+     */
+    void markFailed(List<SeckillOrder> seckillOrders);
+
+    /**
+     * 订单落库后更新订单状态,状态写入失败时只重试状态写入,重试耗尽记录日志,不抛出异常
+     *
+     * @param createdOrders 下单成功的订单
+     * @param failedOrders  下单失败需回补库存的订单
+     */
+    void updateStatus(List<SeckillOrder> createdOrders, List<SeckillOrder> failedOrders);
+}
@@ -0,0 +1,36 @@
+package com.changgou.consumer.service;
+
+import org.springframework.amqp.core.Message;
+
+/**
+ * @Author: Haotian
+ * @Date: 2020/3/11 17:20
+ * @Description: 秒杀订单消息重试服务,失败消息按指数延迟重试,超过最大重试次数后停放
+ */
+public interface SecKillOrderRetryService {
+    /**
+     * 将处理失败的消息投递到延迟队列,超过最大重试次数时投递到停放队列
+     *
+     * @param message 消息
+     * @param cause   失败原因
+     * @throws org.springframework.amqp.AmqpException 投递未得到 mq 确认时抛出,原消息不能确认
+     */
+    void retry(Message message, Throwable cause);
+
+    /**
+     * 将无法处理的消息直接投递到停放队列,可解析的订单标记为下单失败并回补redis中预占的库存
+     *
+     * @param message 消息
+     * @param cause   失败原因
+     * @throws org.springframework.amqp.AmqpException 投递未得到 mq 确认时抛出,原消息不能确认
+     */
+    void park(Message message, Throwable cause);
+
+    /**
+     * 将停放队列中的消息重新投递到秒杀消息队列,重试次数清零
+     *
+     * @param count 最多重新投递的消息数
+     * @return 实际重新投递的消息数
+     */
+    int replay(int count);
+}
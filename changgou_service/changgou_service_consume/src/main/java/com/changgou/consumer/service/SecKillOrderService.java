@@ -2,6 +2,8 @@ package com.changgou.consumer.service;
 
 import com.changgou.seckill.pojo.SeckillOrder;
 
+import java.util.List;
+
 /**
  * @Author: Haotian
  * @Date: 2020/3/6 19:38
@@ -9,10 +11,18 @@ import com.changgou.seckill.pojo.SeckillOrder;
  */
 public interface SecKillOrderService {
     /**
-     * 创建秒杀订单
+     * 创建秒杀订单,订单已存在时视为创建成功
      *
      * @param seckillOrder 秒杀订单信息
      * @return 1:操作成功 0:操作失败
      */
     int createOrder(SeckillOrder seckillOrder);
+
+    /**
+     * 批量创建秒杀订单,同一商品的库存合并为一次扣减,订单一次批量写入,已存在的订单视为创建成功
+     *
+     * @param seckillOrders 秒杀订单集合
+     * @return 因库存不足创建失败的订单id集合
+     */
+    List<Long> createOrders(List<SeckillOrder> seckillOrders);
 }
\ No newline at end of file
@@ -0,0 +1,119 @@
+package com.changgou.consumer.service.impl;
+
+import com.changgou.consumer.service.SecKillOrderResultService;
+import com.changgou.seckill.constant.SecKillOrderStatus;
+import com.changgou.seckill.pojo.SeckillOrder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.scripting.support.ResourceScriptSource;
+import org.springframework.stereotype.Service;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * @Author: Haotian
+ * @Date: 2020/3/9 16:25
+ * @Description: 秒杀订单处理结果服务实现
+ */
+@Slf4j
+@Service
+public class SecKillOrderResultServiceImpl implements SecKillOrderResultService {
+    /**
+     * redis 中秒杀商品库存 key 前缀
+     */
+    private static final String SEC_KILL_GOODS_STOCK_COUNT_KEY = "sec_kill_goods_stock_count_key";
+    /**
+     * redis 中秒杀商品预占记录 key 前缀
+     */
+    private static final String SEC_KILL_RESERVATION_KEY = "sec_kill_reservation_key";
+    /**
+     * 库存回补广播频道
+     */
+    private static final String SEC_KILL_RESTOCK_CHANNEL = "sec_kill_restock_channel";
+
+    /**
+     * 订单状态写入的最大尝试次数
+     */
+    @Value("${seckill.consume.status.max-attempts:3}")
+    private int statusWriteAttempts;
+    private final DefaultRedisScript<Long> releaseScript;
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    public SecKillOrderResultServiceImpl() {
+        releaseScript = new DefaultRedisScript<>();
+        releaseScript.setScriptSource( new ResourceScriptSource( new ClassPathResource( "lua/sec_kill_release.lua" ) ) );
+        releaseScript.setResultType( Long.class );
+    }
+
+    @Override
+    public void markSuccess(List<SeckillOrder> seckillOrders) {
+        if (seckillOrders.isEmpty()) {
+            return;
+        }
+        //管道批量更新订单状态并广播,唤醒长轮询的请求
+        stringRedisTemplate.executePipelined( (RedisCallback<Object>) connection -> {
+            StringRedisConnection stringRedisConnection = (StringRedisConnection) connection;
+            for (SeckillOrder order : seckillOrders) {
+                stringRedisConnection.hSet( SecKillOrderStatus.SEC_KILL_ORDER_STATUS_KEY + order.getSeckillId(),
+                        order.getUserId(), SecKillOrderStatus.SUCCESS );
+                stringRedisConnection.publish( SecKillOrderStatus.SEC_KILL_ORDER_STATUS_CHANNEL,
+                        order.getSeckillId() + ":" + order.getUserId() );
+            }
+            return null;
+        } );
+    }
+
+    @Override
+    public void markFailed(List<SeckillOrder> seckillOrders) {
+        for (SeckillOrder order : seckillOrders) {
+            List<String> keys = Arrays.asList(
+                    SEC_KILL_GOODS_STOCK_COUNT_KEY + order.getSeckillId(),
+                    SEC_KILL_RESERVATION_KEY + order.getSeckillId(),
+                    SecKillOrderStatus.SEC_KILL_ORDER_STATUS_KEY + order.getSeckillId() );
+            stringRedisTemplate.execute( releaseScript, keys, order.getUserId(), SecKillOrderStatus.FAILED,
+                    SecKillOrderStatus.SEC_KILL_ORDER_STATUS_CHANNEL, SEC_KILL_RESTOCK_CHANNEL, String.valueOf( order.getSeckillId() ) );
+        }
+    }
+
+    @Override
+    public void updateStatus(List<SeckillOrder> createdOrders, List<SeckillOrder> failedOrders) {
+        writeStatus( "下单成功", createdOrders, this::markSuccess );
+        writeStatus( "下单失败", failedOrders, this::markFailed );
+    }
+
+    /**
+     * 写入订单状态,状态写入可重复执行,失败时原样重试,重试耗尽只记录日志,订单已落库,可按日志中的订单id补写状态
+     *
+     * @param status        状态描述
+     * @param seckillOrders 秒杀订单集合
+     * @param writer        状态写入操作
+     */
+    private void writeStatus(String status, List<SeckillOrder> seckillOrders, Consumer<List<SeckillOrder>> writer) {
+        if (seckillOrders.isEmpty()) {
+            return;
+        }
+        for (int attempt = 1; ; attempt++) {
+            try {
+                writer.accept( seckillOrders );
+                return;
+            } catch (RuntimeException e) {
+                if (attempt >= statusWriteAttempts) {
+                    log.error( "秒杀订单状态更新为{}失败，共{}条订单：{}", status, seckillOrders.size(),
+                            seckillOrders.stream().map( SeckillOrder::getId ).collect( Collectors.toList() ), e );
+                    return;
+                }
+                log.warn( "秒杀订单状态更新为{}失败，第{}次重试", status, attempt, e );
+            }
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.changgou.consumer.service.impl;
+
+import cn.hutool.core.util.IdUtil;
+import com.alibaba.fastjson.JSON;
+import com.changgou.consumer.config.RabbitMqConfig;
+import com.changgou.consumer.service.SecKillOrderResultService;
+import com.changgou.consumer.service.SecKillOrderRetryService;
+import com.changgou.seckill.pojo.SeckillOrder;
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.GetResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageDeliveryMode;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * @Author: Haotian
+ * @Date: 2020/3/11 17:30
+ * @Description: 秒杀订单消息重试服务实现
+ */
+@Slf4j
+@Service
+public class SecKillOrderRetryServiceImpl implements SecKillOrderRetryService {
+    /**
+     * 已重试次数消息头
+     */
+    public static final String RETRY_COUNT_HEADER = "x-retry-count";
+    /**
+     * 最近一次失败原因消息头
+     */
+    public static final String ERROR_HEADER = "x-last-error";
+    /**
+     * 失败原因最大长度
+     */
+    private static final int MAX_ERROR_LENGTH = 256;
+
+    /**
+     * 各次重试的延迟时间,超出部分使用最后一级延迟
+     */
+    @Value("${seckill.consume.retry.delays:1000,5000,25000}")
+    private long[] delays;
+    /**
+     * 最大处理次数,含首次处理
+     */
+    @Value("${seckill.consume.retry.max-attempts:4}")
+    private int maxAttempts;
+    /**
+     * 等待 mq 确认的超时时间,单位毫秒
+     */
+    @Value("${seckill.consume.retry.confirm-timeout:5000}")
+    private long confirmTimeout;
+    @Autowired
+    private RabbitTemplate rabbitTemplate;
+    @Autowired
+    private SecKillOrderResultService secKillOrderResultService;
+
+    @Override
+    public void retry(Message message, Throwable cause) {
+        MessageProperties properties = message.getMessageProperties();
+        Object retried = properties.getHeaders().get( RETRY_COUNT_HEADER );
+        int attempts = (retried instanceof Number ? ((Number) retried).intValue() : 0) + 1;
+        if (attempts >= maxAttempts) {
+            park( message, cause );
+            return;
+        }
+        //按重试次数选择延迟队列,消息过期后回到秒杀消息队列
+        long delay = delays[Math.min( attempts, delays.length ) - 1];
+        properties.setHeader( RETRY_COUNT_HEADER, attempts );
+        properties.setHeader( ERROR_HEADER, errorOf( cause ) );
+        properties.setDeliveryMode( MessageDeliveryMode.PERSISTENT );
+        send( RabbitMqConfig.SEC_KILL_ORDER_RETRY_EXCHANGE, RabbitMqConfig.retryQueue( delay ), message );
+    }
+
+    @Override
+    public void park(Message message, Throwable cause) {
+        log.error( "秒杀订单消息停放: {}", new String( message.getBody() ), cause );
+        MessageProperties properties = message.getMessageProperties();
+        properties.setHeader( ERROR_HEADER, errorOf( cause ) );
+        properties.setDeliveryMode( MessageDeliveryMode.PERSISTENT );
+        send( "", RabbitMqConfig.SEC_KILL_ORDER_PARKING_QUEUE, message );
+        //停放的订单不会再自动处理,标记为下单失败并回补库存,长轮询的请求不再一直等待
+        SeckillOrder seckillOrder = parseOrder( message );
+        if (seckillOrder != null) {
+            secKillOrderResultService.updateStatus( Collections.emptyList(), Collections.singletonList( seckillOrder ) );
+        }
+    }
+
+    @Override
+    public int replay(int count) {
+        Integer replayed = rabbitTemplate.execute( channel -> {
+            int result = 0;
+            GetResponse response;
+            //逐条取出停放消息,投递回秒杀消息队列后再确认,重新投递失败的消息仍保留在停放队列
+            while (result < count && (response = channel.basicGet( RabbitMqConfig.SEC_KILL_ORDER_PARKING_QUEUE, false )) != null) {
+                Map<String, Object> headers = response.getProps().getHeaders() == null
+                        ? new HashMap<>() : new HashMap<>( response.getProps().getHeaders() );
+                headers.remove( RETRY_COUNT_HEADER );
+                AMQP.BasicProperties properties = response.getProps().builder()
+                        .headers( headers )
+                        .deliveryMode( 2 ).build();
+                channel.basicPublish( "", RabbitMqConfig.SEC_KILL_ORDER_QUEUE, properties, response.getBody() );
+                channel.basicAck( response.getEnvelope().getDeliveryTag(), false );
+                result++;
+            }
+            return result;
+        } );
+        return replayed == null ? 0 : replayed;
+    }
+
+    /**
+     * 投递消息并等待 mq 确认,未确认时抛出异常,由调用方拒绝原消息并重新入队
+     *
+     * @param exchange   交换机
+     * @param routingKey 路由key
+     * @param message    消息
+     */
+    private void send(String exchange, String routingKey, Message message) {
+        CorrelationData correlationData = new CorrelationData( IdUtil.fastSimpleUUID() );
+        rabbitTemplate.send( exchange, routingKey, message, correlationData );
+        try {
+            if (correlationData.getFuture().get( confirmTimeout, TimeUnit.MILLISECONDS ).isAck()) {
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException e) {
+            throw new AmqpException( "秒杀订单消息投递未得到 mq 确认: " + routingKey, e );
+        }
+        throw new AmqpException( "秒杀订单消息投递未得到 mq 确认: " + routingKey );
+    }
+
+    private SeckillOrder parseOrder(Message message) {
+        try {
+            return JSON.parseObject( message.getBody(), SeckillOrder.class );
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    private String errorOf(Throwable cause) {
+        String error = cause.getClass().getName() + ": " + cause.getMessage();
+        return error.length() > MAX_ERROR_LENGTH ? error.substring( 0, MAX_ERROR_LENGTH ) : error;
+    }
+}
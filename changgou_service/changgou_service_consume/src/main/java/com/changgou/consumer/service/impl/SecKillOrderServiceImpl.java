@@ -8,6 +8,14 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
 /**
  * @Author: Haotian
  * @Date: 2020/3/6 19:39
@@ -23,6 +31,10 @@ public class SecKillOrderServiceImpl implements SecKillOrderService {
     @Override
     @Transactional(rollbackFor = Exception.class)
     public int createOrder(SeckillOrder seckillOrder) {
+        //消息重复投递时订单已写入,不再扣减库存
+        if (seckillOrderMapper.existsWithPrimaryKey( seckillOrder.getId() )) {
+            return 1;
+        }
         //1.扣减秒杀商品的库存
         int result = seckillGoodsMapper.updateStockCount( seckillOrder.getSeckillId() );
         if (result <= 0) {
@@ -35,4 +47,39 @@ public class SecKillOrderServiceImpl implements SecKillOrderService {
         }
         return 1;
     }
+
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public List<Long> createOrders(List<SeckillOrder> seckillOrders) {
+        //消息重复投递时订单已写入,不再扣减库存
+        Set<Long> existingIds = new HashSet<>( seckillOrderMapper.findExistingIds(
+                seckillOrders.stream().map( SeckillOrder::getId ).collect( Collectors.toList() ) ) );
+        //1.按商品分组,按商品id顺序扣减库存,避免并发消费者之间死锁
+        Map<Long, List<SeckillOrder>> ordersByGoods = seckillOrders.stream()
+                .filter( order -> !existingIds.contains( order.getId() ) )
+                .collect( Collectors.groupingBy( SeckillOrder::getSeckillId, TreeMap::new, Collectors.toList() ) );
+        List<SeckillOrder> createdOrders = new ArrayList<>( seckillOrders.size() );
+        List<Long> failedOrderIds = new ArrayList<>();
+        for (Map.Entry<Long, List<SeckillOrder>> entry : ordersByGoods.entrySet()) {
+            //2.每个商品只执行一次库存扣减
+            int result = seckillGoodsMapper.updateStockCountBy( entry.getKey(), entry.getValue().size() );
+            if (result > 0) {
+                createdOrders.addAll( entry.getValue() );
+                continue;
+            }
+            //剩余库存不足整组扣减时逐单扣减,尽可能多地创建订单
+            for (SeckillOrder order : entry.getValue()) {
+                if (seckillGoodsMapper.updateStockCount( entry.getKey() ) > 0) {
+                    createdOrders.add( order );
+                } else {
+                    failedOrderIds.add( order.getId() );
+                }
+            }
+        }
+        //3.批量新增秒杀订单
+        if (!createdOrders.isEmpty()) {
+            seckillOrderMapper.insertBatch( createdOrders );
+        }
+        return failedOrderIds;
+    }
 }
\ No newline at end of file
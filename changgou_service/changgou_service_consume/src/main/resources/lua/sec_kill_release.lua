@@ -0,0 +1,15 @@
+-- 秒杀订单失败回补脚本: 标记订单失败、回补redis库存、移除预占记录并广播状态变更
+-- KEYS[1] 商品库存key  KEYS[2] 商品预占记录key  KEYS[3] 商品订单状态key
+-- ARGV[1] 用户名  ARGV[2] 失败状态  ARGV[3] 订单状态广播频道  ARGV[4] 库存回补广播频道  ARGV[5] 商品id
+
+redis.call( 'hset', KEYS[3], ARGV[1], ARGV[2] )
+-- 预占记录已移除说明已回补过,重复执行时不再回补,保证状态写入失败后可安全重试
+if redis.call( 'hdel', KEYS[2], ARGV[1] ) == 1 then
+    -- 库存key已清理时不再回补,避免凭空生成库存
+    if redis.call( 'exists', KEYS[1] ) == 1 then
+        redis.call( 'incr', KEYS[1] )
+        redis.call( 'publish', ARGV[4], ARGV[5] )
+    end
+end
+redis.call( 'publish', ARGV[3], ARGV[5] .. ':' .. ARGV[1] )
+return 1
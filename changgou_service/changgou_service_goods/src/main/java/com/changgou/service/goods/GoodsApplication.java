@@ -3,6 +3,7 @@ package com.changgou.service.goods;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.cloud.netflix.eureka.EnableEurekaClient;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import tk.mybatis.spring.annotation.MapperScan;
 
 /**
@@ -15,6 +16,7 @@ import tk.mybatis.spring.annotation.MapperScan;
 @SpringBootApplication
 @EnableEurekaClient // 声明当前的工程是eureka客户端
 @MapperScan(basePackages = {"com.changgou.service.goods.dao"})
+@EnableScheduling
 public class GoodsApplication {
 
     public static void main(String[] args) {
@@ -0,0 +1,28 @@
+package com.changgou.service.goods.config;
+
+import org.springframework.amqp.core.Queue;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * mq 配置类
+ *
+ * @author Haotian
+ * @version 1.0.0
+ * @date 2020/8/9 10:05
+ **/
+@Configuration
+public class RabbitMqConfig {
+    /**
+     * 热点商品库存流水回写队列
+     */
+    public static final String HOT_SKU_STOCK_FLOW_QUEUE = "hot_sku_stock_flow_queue";
+
+    /**
+     * 声明持久化队列
+     */
+    @Bean
+    public Queue hotSkuStockFlowQueue() {
+        return new Queue( HOT_SKU_STOCK_FLOW_QUEUE, true );
+    }
+}
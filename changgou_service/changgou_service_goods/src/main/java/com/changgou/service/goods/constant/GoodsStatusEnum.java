@@ -18,6 +18,8 @@ public enum GoodsStatusEnum implements ExceptionMessage {
     GOODS_NOT_DELETE( false, StatusCode.ERROR, "当前商品处于未删除状态" ),
     GOODS_NOT_OFFLINE( false, StatusCode.ERROR, "当前商品必须处于下架状态才能删除" ),
     ORDER_ERROR( false, StatusCode.ERROR, "系统异常，请稍后重试" ),
+    HOT_SKU_NOT_SUPPORTED( false, StatusCode.ERROR, "热点商品请通过下单扣减库存" ),
+    HOT_SKU_SWITCHED( false, StatusCode.ERROR, "商品库存已切换，请重新下单" ),
     THE_GOODS_ARE_BEING_DELETED( false, StatusCode.ERROR, "当前商品处于删除状态" );
     private boolean flag;
     private Integer code;
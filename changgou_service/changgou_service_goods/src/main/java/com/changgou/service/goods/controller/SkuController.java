@@ -4,6 +4,7 @@ import com.changgou.common.pojo.PageResult;
 import com.changgou.common.pojo.Result;
 import com.changgou.common.pojo.StatusCode;
 import com.changgou.goods.pojo.Sku;
+import com.changgou.service.goods.service.HotSkuService;
 import com.changgou.service.goods.service.SkuService;
 import com.github.pagehelper.Page;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -26,6 +27,8 @@ import java.util.Map;
 public class SkuController {
     @Autowired
     private SkuService skuService;
+    @Autowired
+    private HotSkuService hotSkuService;
 
     /**
      * 查询全部Sku数据
@@ -169,6 +172,76 @@ public class SkuController {
                 .message( "库存扣减成功，销量已增加" ).build();
     }
 
+    /**
+     * 批量扣减库存，增加销量
+     *
+     * @param reservationId 预扣id，下单失败时按该id释放预扣的热点库存
+     * @param skuNums       sku id: 扣减数量
+     * @return 扣减失败时返回库存不足的sku id
+     */
+    @PostMapping("/decr/counts")
+    public Result<List<String>> decrCounts(@RequestParam("reservationId") String reservationId,
+                                           @RequestBody Map<String, Integer> skuNums) {
+        List<String> failed = skuService.decrCounts( reservationId, skuNums );
+        if (!failed.isEmpty()) {
+            return Result.<List<String>>builder()
+                    .flag( false )
+                    .code( StatusCode.ERROR )
+                    .data( failed )
+                    .message( "商品库存不足" ).build();
+        }
+        return Result.<List<String>>builder()
+                .flag( true )
+                .code( StatusCode.OK )
+                .data( failed )
+                .message( "库存扣减成功，销量已增加" ).build();
+    }
+
+    /**
+     * 释放预扣的热点库存
+     *
+     * @param reservationId 预扣id
+     * @return 操作提示
+     */
+    @PostMapping("/decr/release")
+    public Result<Object> releaseReservation(@RequestParam("reservationId") String reservationId) {
+        skuService.releaseReservation( reservationId );
+        return Result.builder()
+                .flag( true )
+                .code( StatusCode.OK )
+                .message( "预扣库存已释放" ).build();
+    }
+
+    /**
+     * 将sku加载为热点商品，之后下单在 redis 中扣减库存
+     *
+     * @param id sku id
+     * @return 操作提示
+     */
+    @PostMapping("/hot/{id}")
+    public Result<Object> loadHotSku(@PathVariable("id") String id) {
+        boolean loaded = hotSkuService.load( id );
+        return Result.builder()
+                .flag( loaded )
+                .code( loaded ? StatusCode.OK : StatusCode.ERROR )
+                .message( loaded ? "热点商品加载成功" : "热点商品已加载" ).build();
+    }
+
+    /**
+     * 卸载热点商品，之后下单回到数据库扣减库存
+     *
+     * @param id sku id
+     * @return 操作提示
+     */
+    @DeleteMapping("/hot/{id}")
+    public Result<Object> unloadHotSku(@PathVariable("id") String id) {
+        boolean unloaded = hotSkuService.unload( id );
+        return Result.builder()
+                .flag( unloaded )
+                .code( unloaded ? StatusCode.OK : StatusCode.ERROR )
+                .message( unloaded ? "热点商品卸载成功" : "热点商品仍有库存未回写，请稍后重试" ).build();
+    }
+
     /**
      * 回滚库存，扣减销量
      *
@@ -184,4 +257,19 @@ public class SkuController {
                 .code( StatusCode.OK )
                 .message( "回滚库存成功，销量已减少" ).build();
     }
-}
\ No newline at end of file
+
+    /**
+     * 按回补id批量回滚库存，扣减销量，同一回补id只回补一次
+     *
+     * @param restocks 回补id: (sku id: 回滚数量)
+     * @return 操作提示
+     */
+    @PostMapping("/resume/counts")
+    public Result<Object> resumeCounts(@RequestBody Map<String, Map<String, Integer>> restocks) {
+        skuService.resumeCounts( restocks );
+        return Result.builder()
+                .flag( true )
+                .code( StatusCode.OK )
+                .message( "回滚库存成功，销量已减少" ).build();
+    }
+}
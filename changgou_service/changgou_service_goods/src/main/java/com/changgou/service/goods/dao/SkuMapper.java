@@ -3,9 +3,14 @@ package com.changgou.service.goods.dao;
 import com.changgou.goods.pojo.Sku;
 import com.changgou.order.pojo.OrderItem;
 import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
 import org.apache.ibatis.annotations.Update;
 import tk.mybatis.mapper.common.Mapper;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
 /**
  * spu通用接口
  *
@@ -31,4 +36,43 @@ public interface SkuMapper extends Mapper<Sku> {
      */
     @Update("update tb_sku set num=num+#{num},sale_num=sale_num-#{num} where id=#{skuId} ")
     void resumeStockNumber(@Param("skuId") String skuId, @Param("num") Integer number);
-}
\ No newline at end of file
+
+    /**
+     * 按id顺序锁定sku并查询库存，保证并发扣减时加锁顺序一致
+     *
+     * @param ids sku id集合
+     * @return sku id与库存
+     */
+    @Select("<script>" +
+            "select id,num from tb_sku where id in " +
+            "<foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach>" +
+            " order by id for update" +
+            "</script>")
+    List<Sku> lockStock(@Param("ids") Collection<String> ids);
+
+    /**
+     * 查询sku库存
+     *
+     * @param ids sku id集合
+     * @return sku id与库存
+     */
+    @Select("<script>" +
+            "select id,num from tb_sku where id in " +
+            "<foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach>" +
+            "</script>")
+    List<Sku> findStock(@Param("ids") Collection<String> ids);
+
+    /**
+     * 一条语句批量扣减库存，增加销量
+     *
+     * @param skuNums sku id: 扣减数量
+     * @return 影响行数
+     */
+    @Update("<script>" +
+            "update tb_sku set " +
+            "num=case id <foreach collection='skuNums' index='skuId' item='qty'>when #{skuId} then num-#{qty} </foreach>end," +
+            "sale_num=case id <foreach collection='skuNums' index='skuId' item='qty'>when #{skuId} then sale_num+#{qty} </foreach>end " +
+            "where id in <foreach collection='skuNums' index='skuId' open='(' separator=',' close=')'>#{skuId}</foreach>" +
+            "</script>")
+    int decrCounts(@Param("skuNums") Map<String, Integer> skuNums);
+}
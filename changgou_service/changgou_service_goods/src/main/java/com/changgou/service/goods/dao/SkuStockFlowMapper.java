@@ -0,0 +1,41 @@
+package com.changgou.service.goods.dao;
+
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 热点商品库存回写流水接口
+ *
+ * @author Haotian
+ * @version 1.0.0
+ * @date 2020/8/9 10:40
+ **/
+public interface SkuStockFlowMapper {
+    /**
+     * 查询已回写的流水id
+     *
+     * @param ids 流水id集合
+     * @return 已回写的流水id
+     */
+    @Select("<script>" +
+            "select id from tb_sku_stock_flow where id in " +
+            "<foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach>" +
+            "</script>")
+    List<String> findIds(@Param("ids") Collection<String> ids);
+
+    /**
+     * 批量记录已回写的流水id，主键冲突时整批回滚，由 mq 重新投递后去重
+     *
+     * @param ids 流水id集合
+     * @return 影响行数
+     */
+    @Insert("<script>" +
+            "insert into tb_sku_stock_flow(id,create_time) values " +
+            "<foreach collection='ids' item='id' separator=','>(#{id},now())</foreach>" +
+            "</script>")
+    int insertBatch(@Param("ids") Collection<String> ids);
+}
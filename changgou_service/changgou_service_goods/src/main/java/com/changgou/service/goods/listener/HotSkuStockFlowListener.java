@@ -0,0 +1,38 @@
+package com.changgou.service.goods.listener;
+
+import com.alibaba.fastjson.JSON;
+import com.changgou.service.goods.config.RabbitMqConfig;
+import com.changgou.service.goods.service.HotSkuService;
+import com.changgou.service.goods.stock.HotSkuInventory;
+import com.changgou.service.goods.stock.HotSkuStockFlow;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * 热点商品库存流水监听类，每条消息为一批流水，一次事务回写数据库
+ *
+ * @author Haotian
+ * @version 1.0.0
+ * @date 2020/8/9 11:30
+ **/
+@Component
+@ConditionalOnProperty(name = "goods.hot-sku.enabled", havingValue = "true")
+public class HotSkuStockFlowListener {
+    @Autowired
+    private HotSkuService hotSkuService;
+    @Autowired
+    private HotSkuInventory hotSkuInventory;
+
+    @RabbitListener(queues = RabbitMqConfig.HOT_SKU_STOCK_FLOW_QUEUE)
+    public void receiveStockFlows(String message) {
+        List<HotSkuStockFlow> flows = JSON.parseArray( message, HotSkuStockFlow.class );
+        // 1.回写数据库，事务提交后再结算
+        hotSkuService.applyStockFlows( flows );
+        // 2.扣除待回写数量，回写后结算前宕机时消息重新投递，只会重新结算
+        hotSkuInventory.settle( flows );
+    }
+}
@@ -0,0 +1,42 @@
+package com.changgou.service.goods.service;
+
+import com.changgou.service.goods.stock.HotSkuStockFlow;
+
+import java.util.List;
+
+/**
+ * 热点商品库存服务
+ *
+ * @author Haotian
+ * @version 1.0.0
+ * @date 2020/8/9 10:50
+ **/
+public interface HotSkuService {
+    /**
+     * 将sku加载为热点商品，之后下单在 redis 中扣减库存
+     *
+     * @param skuId sku id
+     * @return 是否加载，已加载时返回false
+     */
+    boolean load(String skuId);
+
+    /**
+     * 卸载热点商品，之后下单回到数据库扣减库存
+     *
+     * @param skuId sku id
+     * @return 是否卸载，仍有未回写的库存流水时返回false
+     */
+    boolean unload(String skuId);
+
+    /**
+     * 将库存流水批量回写数据库，已回写的流水不会重复回写
+     *
+     * @param flows 库存流水
+     */
+    void applyStockFlows(List<HotSkuStockFlow> flows);
+
+    /**
+     * 核对热点商品数据库库存与 redis 库存，连续两次偏差相同时修正 redis 库存，多实例中同一时刻只有一个实例核对
+     */
+    void reconcile();
+}
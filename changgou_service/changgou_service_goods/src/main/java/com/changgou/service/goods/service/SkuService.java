@@ -69,12 +69,29 @@ public interface SkuService {
     Page<Sku> findPage(Map<String, Object> searchMap, Integer pageNum, Integer pageSize);
 
     /**
-     * 扣减库存，增加销量
+     * 按购物车在数据库中扣减库存，增加销量，购物车中有热点商品时拒绝
      *
      * @param username 用户名
      */
     void decrCount(String username);
 
+    /**
+     * 批量扣减库存，增加销量，任一sku库存不足时全部不扣减
+     * 热点商品在 redis 中预扣库存，异步回写数据库
+     *
+     * @param reservationId 预扣id，下单失败时按该id释放预扣的热点库存
+     * @param skuNums       sku id: 扣减数量
+     * @return 库存不足或不存在的sku id，全部扣减成功时为空
+     */
+    List<String> decrCounts(String reservationId, Map<String, Integer> skuNums);
+
+    /**
+     * 释放预扣的热点库存
+     *
+     * @param reservationId 预扣id
+     */
+    void releaseReservation(String reservationId);
+
     /**
      * 回滚库存，扣减销量
      *
@@ -82,4 +99,11 @@ public interface SkuService {
      * @param number 商品数量
      */
     void resumeStockNumber(String skuId, Integer number);
-}
\ No newline at end of file
+
+    /**
+     * 按回补id批量回滚库存，扣减销量，同一回补id重复调用只回补一次
+     *
+     * @param restocks 回补id: (sku id: 回滚数量)
+     */
+    void resumeCounts(Map<String, Map<String, Integer>> restocks);
+}
@@ -0,0 +1,157 @@
+package com.changgou.service.goods.service.impl;
+
+import cn.hutool.core.collection.CollUtil;
+import cn.hutool.core.util.IdUtil;
+import com.changgou.goods.pojo.Sku;
+import com.changgou.service.goods.constant.GoodsStatusEnum;
+import com.changgou.service.goods.dao.SkuMapper;
+import com.changgou.service.goods.dao.SkuStockFlowMapper;
+import com.changgou.service.goods.exception.GoodsException;
+import com.changgou.service.goods.service.HotSkuService;
+import com.changgou.service.goods.stock.HotSkuInventory;
+import com.changgou.service.goods.stock.HotSkuStockFlow;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * 热点商品库存服务实现
+ *
+ * @author Haotian
+ * @version 1.0.0
+ * @date 2020/8/9 10:55
+ **/
+@Slf4j
+@Service
+public class HotSkuServiceImpl implements HotSkuService {
+    /**
+     * 核对锁key，多实例中同一时刻只有一个实例核对并修正 redis 库存
+     */
+    private static final String RECONCILE_LOCK_KEY = "hot_sku_reconcile_lock";
+    private final String instanceId = IdUtil.fastSimpleUUID();
+    @Value("${goods.hot-sku.reconcile-batch-size:200}")
+    private int batchSize;
+    /**
+     * 核对锁过期时间(毫秒)
+     */
+    @Value("${goods.hot-sku.reconcile-lock-timeout:30000}")
+    private long lockTimeout;
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+    @Autowired
+    private SkuMapper skuMapper;
+    @Autowired
+    private SkuStockFlowMapper skuStockFlowMapper;
+    @Autowired
+    private HotSkuInventory hotSkuInventory;
+
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public boolean load(String skuId) {
+        // 1.锁定sku行读取库存，数据库扣减在提交前持有同一行锁，读取到的库存不会再被未提交的扣减改变
+        List<Sku> skus = skuMapper.lockStock( Collections.singletonList( skuId ) );
+        if (skus.isEmpty()) {
+            throw new GoodsException( GoodsStatusEnum.GOODS_VANISH );
+        }
+        // 2.持锁写入 redis，之后加锁的数据库扣减会复查到已加载并回滚
+        return hotSkuInventory.load( skuId, skus.get( 0 ).getNum() );
+    }
+
+    @Override
+    public boolean unload(String skuId) {
+        return hotSkuInventory.unload( skuId );
+    }
+
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public void applyStockFlows(List<HotSkuStockFlow> flows) {
+        // 1.过滤已回写的流水
+        Map<String, HotSkuStockFlow> flowMap = new LinkedHashMap<>( flows.size() * 2 );
+        for (HotSkuStockFlow flow : flows) {
+            flowMap.put( flow.getId(), flow );
+        }
+        if (flowMap.isEmpty()) {
+            return;
+        }
+        for (String id : skuStockFlowMapper.findIds( flowMap.keySet() )) {
+            flowMap.remove( id );
+        }
+        if (flowMap.isEmpty()) {
+            return;
+        }
+        // 2.记录本批流水，与库存回写在同一事务中提交
+        skuStockFlowMapper.insertBatch( flowMap.keySet() );
+        // 3.按sku合并扣减数量，按id排序后一条语句回写
+        SortedMap<String, Integer> skuNums = new TreeMap<>();
+        for (HotSkuStockFlow flow : flowMap.values()) {
+            flow.getSkuNums().forEach( (skuId, num) -> skuNums.merge( skuId, num, Integer::sum ) );
+        }
+        skuNums.values().removeIf( num -> num == 0 );
+        if (!skuNums.isEmpty()) {
+            skuMapper.decrCounts( skuNums );
+        }
+    }
+
+    @Override
+    public void reconcile() {
+        Boolean locked = stringRedisTemplate.opsForValue().setIfAbsent( RECONCILE_LOCK_KEY, instanceId, Duration.ofMillis( lockTimeout ) );
+        if (!Boolean.TRUE.equals( locked )) {
+            return;
+        }
+        try {
+            reconcileLocked();
+        } finally {
+            hotSkuInventory.unlock( RECONCILE_LOCK_KEY, instanceId );
+        }
+    }
+
+    /**
+     * 持有核对锁时核对库存，上一次核对的偏差保存在 redis 中，连续两次偏差相同才修正，避免修正核对期间正在回写的库存
+     */
+    private void reconcileLocked() {
+        Map<String, Long> pendingDrifts = hotSkuInventory.drifts();
+        Map<String, Long> drifts = new HashMap<>();
+        Set<String> repaired = new HashSet<>();
+        for (List<String> skuIds : CollUtil.split( hotSkuInventory.hotSkuIds(), batchSize )) {
+            // 1.每批一次数据库查询与一次 redis 脚本调用
+            Map<String, long[]> snapshot = hotSkuInventory.snapshot( skuIds );
+            for (Sku sku : skuMapper.findStock( skuIds )) {
+                long[] stock = snapshot.get( sku.getId() );
+                if (stock == null || sku.getNum() == null) {
+                    continue;
+                }
+                // 2.偏差 = 数据库库存 - (redis 库存 + 待回写数量)
+                long drift = sku.getNum() - stock[0] - stock[1];
+                if (drift == 0) {
+                    continue;
+                }
+                drifts.put( sku.getId(), drift );
+                // 3.连续两次偏差相同才修正 redis 库存
+                if (Long.valueOf( drift ).equals( pendingDrifts.get( sku.getId() ) )) {
+                    long adjusted = hotSkuInventory.adjust( sku.getId(), drift );
+                    repaired.add( sku.getId() );
+                    log.warn( "热点商品 {} 库存偏差 {}，redis 库存已调整 {}", sku.getId(), drift, adjusted );
+                }
+            }
+        }
+        drifts.keySet().removeAll( repaired );
+        if (!drifts.isEmpty()) {
+            log.info( "热点商品库存存在偏差，下次核对时确认: {}", drifts );
+        }
+        hotSkuInventory.saveDrifts( drifts );
+    }
+}
@@ -6,8 +6,10 @@ import com.changgou.goods.pojo.Sku;
 import com.changgou.order.pojo.OrderItem;
 import com.changgou.service.goods.constant.GoodsStatusEnum;
 import com.changgou.service.goods.dao.SkuMapper;
+import com.changgou.service.goods.dao.SkuStockFlowMapper;
 import com.changgou.service.goods.exception.GoodsException;
 import com.changgou.service.goods.service.SkuService;
+import com.changgou.service.goods.stock.HotSkuInventory;
 import com.changgou.service.goods.util.Condition;
 import com.github.pagehelper.Page;
 import com.github.pagehelper.PageHelper;
@@ -18,8 +20,12 @@ import org.springframework.transaction.annotation.Transactional;
 import tk.mybatis.mapper.entity.Example;
 
 import javax.validation.constraints.NotNull;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
 
 /**
  * sku服务实现
@@ -30,10 +36,18 @@ import java.util.Map;
  **/
 @Service
 public class SkuServiceImpl implements SkuService {
+    /**
+     * 热点商品回补流水id后缀，与数据库回补id区分，回写时不会被当作已回写的流水
+     */
+    private static final String HOT_RESTOCK_SUFFIX = ":hot";
     @Autowired
     private SkuMapper skuMapper;
     @Autowired
+    private SkuStockFlowMapper skuStockFlowMapper;
+    @Autowired
     private RedisTemplate redisTemplate;
+    @Autowired
+    private HotSkuInventory hotSkuInventory;
 
     @Override
     public List<Sku> findAll() {
@@ -78,23 +92,143 @@ public class SkuServiceImpl implements SkuService {
     @Override
     @Transactional(rollbackFor = Exception.class)
     public void decrCount(String username) {
-        // 1.获取购物车的数据
+        // 1.获取购物车的数据，合并为 sku id: 数量
         List<OrderItem> orderItemList = redisTemplate.boundHashOps( "cart_" + username ).values();
-        // 2.循环扣减库存增加销量
+        Map<String, Integer> skuNums = new HashMap<>( orderItemList.size() * 2 );
         for (OrderItem orderItem : orderItemList) {
-            int count = skuMapper.decrCount( orderItem );
-            if (count <= 0) {
-                throw new GoodsException( GoodsStatusEnum.ORDER_ERROR );
+            skuNums.merge( orderItem.getSkuId(), orderItem.getNum(), Integer::sum );
+        }
+        // 2.热点商品的 redis 预扣需要关联订单，不走按购物车扣减
+        if (!hotSkuInventory.hotPart( skuNums ).isEmpty()) {
+            throw new GoodsException( GoodsStatusEnum.HOT_SKU_NOT_SUPPORTED );
+        }
+        // 3.一次扣减库存增加销量
+        if (!decrStock( skuNums ).isEmpty()) {
+            throw new GoodsException( GoodsStatusEnum.ORDER_ERROR );
+        }
+    }
+
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public List<String> decrCounts(String reservationId, Map<String, Integer> skuNums) {
+        if (skuNums == null || skuNums.isEmpty()) {
+            return new ArrayList<>();
+        }
+        // 1.热点商品在 redis 中预扣库存
+        Map<String, Integer> hotNums = hotSkuInventory.hotPart( skuNums );
+        if (!hotNums.isEmpty()) {
+            List<String> failed = hotSkuInventory.reserve( reservationId, hotNums );
+            if (!failed.isEmpty()) {
+                return failed;
             }
         }
+        // 2.其余商品在数据库中扣减，失败时释放预扣的热点库存
+        Map<String, Integer> coldNums = new HashMap<>( skuNums );
+        coldNums.keySet().removeAll( hotNums.keySet() );
+        List<String> failed;
+        try {
+            failed = decrStock( coldNums );
+        } catch (RuntimeException e) {
+            releaseReservation( reservationId, hotNums );
+            throw e;
+        }
+        if (!failed.isEmpty()) {
+            releaseReservation( reservationId, hotNums );
+        }
+        return failed;
+    }
+
+    @Override
+    public void releaseReservation(String reservationId) {
+        hotSkuInventory.release( reservationId );
     }
 
     @Override
     @Transactional(rollbackFor = Exception.class)
     public void resumeStockNumber(String skuId, Integer number) {
+        // 热点商品回补 redis 库存，由库存流水回写数据库
+        if (hotSkuInventory.restock( skuId, number )) {
+            return;
+        }
         skuMapper.resumeStockNumber( skuId, number );
     }
 
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public void resumeCounts(Map<String, Map<String, Integer>> restocks) {
+        if (restocks == null || restocks.isEmpty()) {
+            return;
+        }
+        // 1.过滤已回补的回补id，本批回补id与数据库库存在同一事务中提交
+        Map<String, Map<String, Integer>> pending = new HashMap<>( restocks );
+        for (String id : skuStockFlowMapper.findIds( pending.keySet() )) {
+            pending.remove( id );
+        }
+        if (pending.isEmpty()) {
+            return;
+        }
+        skuStockFlowMapper.insertBatch( pending.keySet() );
+        // 2.热点商品按回补id回补 redis 库存，事务回滚后重试时不会重复回补
+        SortedMap<String, Integer> coldNums = new TreeMap<>();
+        pending.forEach( (restockId, skuNums) -> {
+            Map<String, Integer> hotNums = hotSkuInventory.hotPart( skuNums );
+            boolean restocked = hotSkuInventory.restock( restockId + HOT_RESTOCK_SUFFIX, hotNums );
+            skuNums.forEach( (skuId, num) -> {
+                if (!restocked || !hotNums.containsKey( skuId )) {
+                    coldNums.merge( skuId, num, Integer::sum );
+                }
+            } );
+        } );
+        // 3.其余商品一条语句回补数据库库存，回补即扣减负数
+        coldNums.replaceAll( (skuId, num) -> -num );
+        coldNums.values().removeIf( num -> num == 0 );
+        if (!coldNums.isEmpty()) {
+            skuMapper.decrCounts( coldNums );
+        }
+    }
+
+    /**
+     * 在数据库中一条语句扣减库存，任一sku库存不足时全部不扣减
+     *
+     * @param skuNums sku id: 扣减数量
+     * @return 库存不足或不存在的sku id
+     */
+    private List<String> decrStock(Map<String, Integer> skuNums) {
+        List<String> failed = new ArrayList<>();
+        if (skuNums.isEmpty()) {
+            return failed;
+        }
+        // 1.按id排序，并发下单时按相同顺序加锁，避免死锁
+        SortedMap<String, Integer> sorted = new TreeMap<>( skuNums );
+        // 2.一次锁定所有sku并校验库存
+        Map<String, Integer> stock = new HashMap<>( sorted.size() * 2 );
+        for (Sku sku : skuMapper.lockStock( sorted.keySet() )) {
+            stock.put( sku.getId(), sku.getNum() );
+        }
+        // 3.持锁后复查，加锁前已被加载为热点的商品库存以 redis 为准，回滚后由调用方重新下单
+        if (!hotSkuInventory.hotPart( sorted ).isEmpty()) {
+            throw new GoodsException( GoodsStatusEnum.HOT_SKU_SWITCHED );
+        }
+        sorted.forEach( (skuId, num) -> {
+            Integer current = stock.get( skuId );
+            if (num == null || num <= 0 || current == null || current < num) {
+                failed.add( skuId );
+            }
+        } );
+        if (!failed.isEmpty()) {
+            return failed;
+        }
+        // 4.一条语句扣减库存增加销量
+        skuMapper.decrCounts( sorted );
+        return failed;
+    }
+
+    private void releaseReservation(String reservationId, Map<String, Integer> hotNums) {
+        if (!hotNums.isEmpty()) {
+            hotSkuInventory.release( reservationId );
+        }
+    }
+
     /**
      * 条件拼接
      *
@@ -0,0 +1,346 @@
+package com.changgou.service.goods.stock;
+
+import cn.hutool.core.util.IdUtil;
+import com.alibaba.fastjson.JSON;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.scripting.support.ResourceScriptSource;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * 热点商品 redis 库存
+ * 热点商品下单时在 redis 中原子预扣库存，同时写入库存流水列表，由定时任务经 mq 批量回写数据库
+ * 不变量: 数据库库存 = redis 库存 + 待回写数量
+ *
+ * @author Haotian
+ * @version 1.0.0
+ * @date 2020/8/9 10:20
+ **/
+@Component
+public class HotSkuInventory {
+    /**
+     * 热点商品库存 sku id: 库存
+     */
+    private static final String HOT_SKU_STOCK_KEY = "hot_sku_stock";
+    /**
+     * 已在 redis 中扣减但未回写数据库的数量 sku id: 数量
+     */
+    private static final String HOT_SKU_PENDING_KEY = "hot_sku_pending";
+    /**
+     * 待发送到 mq 的库存流水列表
+     */
+    private static final String HOT_SKU_STOCK_FLOW_KEY = "hot_sku_stock_flow";
+    /**
+     * 预扣记录key前缀，用于下单失败时释放预扣的库存
+     */
+    private static final String HOT_SKU_RESERVATION_KEY = "hot_sku_reservation_";
+    /**
+     * 已结算的库存流水key前缀
+     */
+    private static final String HOT_SKU_SETTLED_KEY = "hot_sku_settled_";
+    /**
+     * 上一次核对发现的库存偏差 sku id: 偏差，多实例共享
+     */
+    private static final String HOT_SKU_DRIFT_KEY = "hot_sku_drift";
+
+    private final DefaultRedisScript<List> reserveScript = script( "lua/hot_sku_reserve.lua", List.class );
+    private final DefaultRedisScript<Long> releaseScript = script( "lua/hot_sku_release.lua", Long.class );
+    private final DefaultRedisScript<Long> settleScript = script( "lua/hot_sku_settle.lua", Long.class );
+    private final DefaultRedisScript<List> snapshotScript = script( "lua/hot_sku_snapshot.lua", List.class );
+    private final DefaultRedisScript<Long> adjustScript = script( "lua/hot_sku_adjust.lua", Long.class );
+    private final DefaultRedisScript<Long> loadScript = script( "lua/hot_sku_load.lua", Long.class );
+    private final DefaultRedisScript<Long> unloadScript = script( "lua/hot_sku_unload.lua", Long.class );
+    private final DefaultRedisScript<Long> unlockScript = script( "lua/hot_sku_unlock.lua", Long.class );
+    private final DefaultRedisScript<Long> renewScript = script( "lua/hot_sku_renew.lua", Long.class );
+    private final List<String> stockKeys = Arrays.asList( HOT_SKU_STOCK_KEY, HOT_SKU_PENDING_KEY );
+    /**
+     * 是否开启热点商品 redis 库存
+     */
+    @Value("${goods.hot-sku.enabled:false}")
+    private boolean enabled;
+    /**
+     * 预扣记录保留的秒数，超过后不能再释放
+     */
+    @Value("${goods.hot-sku.reservation-ttl:3600}")
+    private long reservationTtl;
+    /**
+     * 已结算标记保留的秒数，需大于 mq 消息可能重复投递的时间
+     */
+    @Value("${goods.hot-sku.settled-ttl:86400}")
+    private long settledTtl;
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 从扣减数量中取出已加载到 redis 的热点商品
+     *
+     * @param skuNums sku id: 扣减数量
+     * @return 热点商品 sku id: 扣减数量，未开启时为空
+     */
+    public Map<String, Integer> hotPart(Map<String, Integer> skuNums) {
+        if (!enabled || skuNums.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        List<Object> skuIds = new ArrayList<>( skuNums.keySet() );
+        List<Object> stock = stringRedisTemplate.opsForHash().multiGet( HOT_SKU_STOCK_KEY, skuIds );
+        Map<String, Integer> hotNums = new HashMap<>();
+        for (int i = 0; i < skuIds.size(); i++) {
+            if (stock.get( i ) != null) {
+                hotNums.put( (String) skuIds.get( i ), skuNums.get( skuIds.get( i ) ) );
+            }
+        }
+        return hotNums;
+    }
+
+    /**
+     * 预扣热点商品库存，任一商品库存不足时全部不扣减，同一预扣id重复预扣不会重复扣减
+     *
+     * @param reservationId 预扣id
+     * @param skuNums       sku id: 扣减数量
+     * @return 库存不足或未加载的sku id，预扣成功时为空
+     */
+    public List<String> reserve(String reservationId, Map<String, Integer> skuNums) {
+        List<String> failed = skuNums.entrySet().stream()
+                .filter( entry -> entry.getValue() == null || entry.getValue() <= 0 )
+                .map( Map.Entry::getKey ).collect( Collectors.toList() );
+        if (!failed.isEmpty()) {
+            return failed;
+        }
+        return apply( reservationId, skuNums );
+    }
+
+    /**
+     * 释放预扣的库存，并写入反向库存流水回补数据库
+     *
+     * @param reservationId 预扣id
+     * @return 是否释放，预扣记录不存在时返回false
+     */
+    public boolean release(String reservationId) {
+        if (!enabled) {
+            return false;
+        }
+        Long released = stringRedisTemplate.execute( releaseScript,
+                Arrays.asList( HOT_SKU_STOCK_KEY, HOT_SKU_PENDING_KEY, HOT_SKU_STOCK_FLOW_KEY, HOT_SKU_RESERVATION_KEY + reservationId ),
+                reservationId + ":release" );
+        return released != null && released == 1;
+    }
+
+    /**
+     * 回补热点商品库存
+     *
+     * @param skuId  sku id
+     * @param number 回补数量
+     * @return 是否回补，商品未加载时返回false，由调用方回补数据库
+     */
+    public boolean restock(String skuId, Integer number) {
+        return restock( Collections.singletonMap( skuId, number ) );
+    }
+
+    /**
+     * 一次回补多个热点商品库存，任一商品未加载时全部不回补
+     *
+     * @param skuNums sku id: 回补数量
+     * @return 是否回补，未回补时由调用方回补数据库
+     */
+    public boolean restock(Map<String, Integer> skuNums) {
+        return restock( IdUtil.fastSimpleUUID(), skuNums );
+    }
+
+    /**
+     * 按流水id回补热点商品库存，预扣记录有效期内相同流水id重复回补不会重复增加库存
+     *
+     * @param flowId  库存流水id
+     * @param skuNums sku id: 回补数量
+     * @return 是否回补，未回补时由调用方回补数据库
+     */
+    public boolean restock(String flowId, Map<String, Integer> skuNums) {
+        if (!enabled || skuNums.isEmpty()) {
+            return false;
+        }
+        Map<String, Integer> flowNums = new HashMap<>( skuNums.size() * 2 );
+        skuNums.forEach( (skuId, num) -> flowNums.put( skuId, -num ) );
+        return apply( flowId, flowNums ).isEmpty();
+    }
+
+    /**
+     * 加载热点商品
+     *
+     * @param skuId sku id
+     * @param num   数据库库存
+     * @return 是否加载，已加载时返回false
+     */
+    public boolean load(String skuId, Integer num) {
+        Long loaded = stringRedisTemplate.execute( loadScript, stockKeys, skuId, String.valueOf( num ) );
+        return loaded != null && loaded == 1;
+    }
+
+    /**
+     * 卸载热点商品
+     *
+     * @param skuId sku id
+     * @return 是否卸载，仍有未回写的库存流水时返回false
+     */
+    public boolean unload(String skuId) {
+        Long unloaded = stringRedisTemplate.execute( unloadScript, stockKeys, skuId );
+        return unloaded != null && unloaded == 1;
+    }
+
+    /**
+     * 已加载的热点商品
+     */
+    public Set<String> hotSkuIds() {
+        return stringRedisTemplate.<String, String>opsForHash().keys( HOT_SKU_STOCK_KEY );
+    }
+
+    /**
+     * 同一时刻读取 redis 库存与待回写数量
+     *
+     * @param skuIds sku id集合
+     * @return sku id: {redis库存, 待回写数量}，不包含未加载的商品
+     */
+    public Map<String, long[]> snapshot(List<String> skuIds) {
+        List<Long> values = stringRedisTemplate.execute( snapshotScript, stockKeys, skuIds.toArray() );
+        Map<String, long[]> snapshot = new HashMap<>( skuIds.size() * 2 );
+        for (int i = 0; i < skuIds.size(); i++) {
+            long stock = values.get( i * 2 );
+            if (stock >= 0) {
+                snapshot.put( skuIds.get( i ), new long[]{stock, values.get( i * 2 + 1 )} );
+            }
+        }
+        return snapshot;
+    }
+
+    /**
+     * 按偏差修正 redis 库存
+     *
+     * @param skuId sku id
+     * @param drift 库存偏差
+     * @return 实际调整的库存数
+     */
+    public long adjust(String skuId, long drift) {
+        Long adjusted = stringRedisTemplate.execute( adjustScript,
+                Collections.singletonList( HOT_SKU_STOCK_KEY ), skuId, String.valueOf( drift ) );
+        return adjusted == null ? 0 : adjusted;
+    }
+
+    /**
+     * 读取待发送的库存流水
+     *
+     * @param count 最多读取的条数
+     * @return 库存流水json
+     */
+    public List<String> peekFlows(int count) {
+        return stringRedisTemplate.opsForList().range( HOT_SKU_STOCK_FLOW_KEY, 0, count - 1 );
+    }
+
+    /**
+     * 删除已发送的库存流水
+     *
+     * @param count 已发送的条数
+     */
+    public void removeFlows(int count) {
+        stringRedisTemplate.opsForList().trim( HOT_SKU_STOCK_FLOW_KEY, count, -1 );
+    }
+
+    /**
+     * 库存流水回写数据库后扣除待回写数量，重复投递的流水不会重复结算
+     *
+     * @param flows 已回写的库存流水
+     */
+    public void settle(List<HotSkuStockFlow> flows) {
+        List<String> args = new ArrayList<>( flows.size() + 2 );
+        args.add( HOT_SKU_SETTLED_KEY );
+        args.add( String.valueOf( settledTtl ) );
+        for (HotSkuStockFlow flow : flows) {
+            args.add( JSON.toJSONString( flow ) );
+        }
+        stringRedisTemplate.execute( settleScript, stockKeys, args.toArray() );
+    }
+
+    /**
+     * 读取上一次核对发现的库存偏差
+     *
+     * @return sku id: 偏差
+     */
+    public Map<String, Long> drifts() {
+        Map<String, String> entries = stringRedisTemplate.<String, String>opsForHash().entries( HOT_SKU_DRIFT_KEY );
+        Map<String, Long> drifts = new HashMap<>( entries.size() * 2 );
+        entries.forEach( (skuId, drift) -> drifts.put( skuId, Long.valueOf( drift ) ) );
+        return drifts;
+    }
+
+    /**
+     * 保存本次核对发现的库存偏差，替换上一次的偏差
+     *
+     * @param drifts sku id: 偏差
+     */
+    public void saveDrifts(Map<String, Long> drifts) {
+        stringRedisTemplate.delete( HOT_SKU_DRIFT_KEY );
+        if (!drifts.isEmpty()) {
+            Map<String, String> entries = new HashMap<>( drifts.size() * 2 );
+            drifts.forEach( (skuId, drift) -> entries.put( skuId, String.valueOf( drift ) ) );
+            stringRedisTemplate.opsForHash().putAll( HOT_SKU_DRIFT_KEY, entries );
+        }
+    }
+
+    /**
+     * 续期任务锁，锁已过期或被其他实例获取时不续期
+     *
+     * @param lockKey 锁key
+     * @param owner   持有锁的实例id
+     * @param timeout 过期时间(毫秒)
+     * @return 是否续期
+     */
+    public boolean renewLock(String lockKey, String owner, long timeout) {
+        Long renewed = stringRedisTemplate.execute( renewScript, Collections.singletonList( lockKey ), owner, String.valueOf( timeout ) );
+        return renewed != null && renewed == 1;
+    }
+
+    /**
+     * 释放任务锁，比较持有者与删除在同一脚本中执行，不会删除其他实例的锁
+     *
+     * @param lockKey 锁key
+     * @param owner   持有锁的实例id
+     */
+    public void unlock(String lockKey, String owner) {
+        stringRedisTemplate.execute( unlockScript, Collections.singletonList( lockKey ), owner );
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<String> apply(String flowId, Map<String, Integer> skuNums) {
+        List<String> args = new ArrayList<>( skuNums.size() * 2 + 2 );
+        args.add( JSON.toJSONString( new HotSkuStockFlow( flowId, skuNums ) ) );
+        args.add( String.valueOf( reservationTtl ) );
+        skuNums.forEach( (skuId, num) -> {
+            args.add( skuId );
+            args.add( String.valueOf( num ) );
+        } );
+        List<String> failed = stringRedisTemplate.execute( reserveScript,
+                Arrays.asList( HOT_SKU_STOCK_KEY, HOT_SKU_PENDING_KEY, HOT_SKU_STOCK_FLOW_KEY, HOT_SKU_RESERVATION_KEY + flowId ),
+                args.toArray() );
+        return failed == null ? new ArrayList<>() : new ArrayList<>( failed );
+    }
+
+    private static <T> DefaultRedisScript<T> script(String path, Class<T> resultType) {
+        DefaultRedisScript<T> script = new DefaultRedisScript<>();
+        script.setScriptSource( new ResourceScriptSource( new ClassPathResource( path ) ) );
+        script.setResultType( resultType );
+        return script;
+    }
+}
@@ -0,0 +1,30 @@
+package com.changgou.service.goods.stock;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.util.Map;
+
+/**
+ * 热点商品库存流水，redis 中扣减的库存经 mq 异步回写数据库
+ *
+ * @author Haotian
+ * @version 1.0.0
+ * @date 2020/8/9 10:10
+ **/
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class HotSkuStockFlow implements Serializable {
+    private static final long serialVersionUID = 2765128733469155106L;
+    /**
+     * 流水id，回写数据库时按id去重
+     */
+    private String id;
+    /**
+     * sku id: 扣减数量，负数为回补库存
+     */
+    private Map<String, Integer> skuNums;
+}
@@ -0,0 +1,26 @@
+package com.changgou.service.goods.task;
+
+import com.changgou.service.goods.service.HotSkuService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * 热点商品库存核对定时任务
+ *
+ * @author Haotian
+ * @version 1.0.0
+ * @date 2020/8/9 11:20
+ **/
+@Component
+@ConditionalOnProperty(name = "goods.hot-sku.enabled", havingValue = "true")
+public class HotSkuReconcileTask {
+    @Autowired
+    private HotSkuService hotSkuService;
+
+    @Scheduled(initialDelayString = "${goods.hot-sku.reconcile-interval:60000}", fixedDelayString = "${goods.hot-sku.reconcile-interval:60000}")
+    public void reconcile() {
+        hotSkuService.reconcile();
+    }
+}
@@ -0,0 +1,105 @@
+package com.changgou.service.goods.task;
+
+import cn.hutool.core.util.IdUtil;
+import com.changgou.service.goods.config.RabbitMqConfig;
+import com.changgou.service.goods.stock.HotSkuInventory;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 热点商品库存流水转发任务，将 redis 中的库存流水按批发送到 mq
+ * 同一时刻只有一个实例转发，mq 确认收到后才删除流水，重复发送由回写时按流水id去重
+ *
+ * @author Haotian
+ * @version 1.0.0
+ * @date 2020/8/9 11:10
+ **/
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "goods.hot-sku.enabled", havingValue = "true")
+public class HotSkuStockFlowRelayTask {
+    /**
+     * 转发锁key
+     */
+    private static final String RELAY_LOCK_KEY = "hot_sku_stock_flow_relay_lock";
+    private final String instanceId = IdUtil.fastSimpleUUID();
+    /**
+     * 每条 mq 消息包含的最大流水数
+     */
+    @Value("${goods.hot-sku.relay-batch-size:500}")
+    private int batchSize;
+    /**
+     * 转发锁过期时间(毫秒)，实例宕机后由其他实例接替
+     */
+    @Value("${goods.hot-sku.relay-lock-timeout:10000}")
+    private long lockTimeout;
+    /**
+     * 等待 mq 确认的超时时间(毫秒)，需小于转发锁过期时间
+     */
+    @Value("${goods.hot-sku.relay-confirm-timeout:5000}")
+    private long confirmTimeout;
+    @Autowired
+    private HotSkuInventory hotSkuInventory;
+    @Autowired
+    private RabbitTemplate rabbitTemplate;
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Scheduled(fixedDelayString = "${goods.hot-sku.relay-interval:200}")
+    public void relay() {
+        Boolean locked = stringRedisTemplate.opsForValue().setIfAbsent( RELAY_LOCK_KEY, instanceId, Duration.ofMillis( lockTimeout ) );
+        if (!Boolean.TRUE.equals( locked )) {
+            return;
+        }
+        try {
+            List<String> flows;
+            do {
+                // 1.读取一批流水，合并为一条消息发送
+                flows = hotSkuInventory.peekFlows( batchSize );
+                if (flows == null || flows.isEmpty()) {
+                    return;
+                }
+                CorrelationData correlationData = new CorrelationData( IdUtil.fastSimpleUUID() );
+                rabbitTemplate.convertAndSend( "", RabbitMqConfig.HOT_SKU_STOCK_FLOW_QUEUE, "[" + String.join( ",", flows ) + "]", correlationData );
+                // 2.mq 确认收到后删除已发送的流水，未确认时保留流水等待下次转发
+                if (!isAck( correlationData )) {
+                    log.warn( "热点商品库存流水未得到 mq 确认，等待下次转发" );
+                    return;
+                }
+                // 3.转发锁已过期时不删除，由持有锁的实例重新发送，否则续期后删除
+                if (!hotSkuInventory.renewLock( RELAY_LOCK_KEY, instanceId, lockTimeout )) {
+                    return;
+                }
+                hotSkuInventory.removeFlows( flows.size() );
+            } while (flows.size() == batchSize);
+        } catch (RuntimeException e) {
+            log.error( "热点商品库存流水发送失败，等待下次转发", e );
+        } finally {
+            hotSkuInventory.unlock( RELAY_LOCK_KEY, instanceId );
+        }
+    }
+
+    private boolean isAck(CorrelationData correlationData) {
+        try {
+            return correlationData.getFuture().get( confirmTimeout, TimeUnit.MILLISECONDS ).isAck();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException | TimeoutException e) {
+            return false;
+        }
+    }
+}
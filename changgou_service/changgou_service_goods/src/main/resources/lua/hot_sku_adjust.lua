@@ -0,0 +1,15 @@
+-- 热点商品库存修正脚本: 按偏差调整redis库存,库存不会被调整为负数
+-- KEYS[1] 热点商品库存hash
+-- ARGV[1] 商品id  ARGV[2] 库存偏差
+-- 返回值: 实际调整的库存数,商品未加载时返回0
+
+local before = tonumber( redis.call( 'hget', KEYS[1], ARGV[1] ) )
+if before == nil then
+    return 0
+end
+local after = before + tonumber( ARGV[2] )
+if after < 0 then
+    after = 0
+end
+redis.call( 'hset', KEYS[1], ARGV[1], after )
+return after - before
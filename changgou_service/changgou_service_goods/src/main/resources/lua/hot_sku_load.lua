@@ -0,0 +1,11 @@
+-- 热点商品加载脚本: 以数据库库存初始化redis库存,已加载的商品不重复加载
+-- KEYS[1] 热点商品库存hash  KEYS[2] 待回写数量hash
+-- ARGV[1] 商品id  ARGV[2] 数据库库存
+-- 返回值: 1 加载成功  0 已加载
+
+if redis.call( 'hexists', KEYS[1], ARGV[1] ) == 1 then
+    return 0
+end
+redis.call( 'hset', KEYS[1], ARGV[1], ARGV[2] )
+redis.call( 'hset', KEYS[2], ARGV[1], 0 )
+return 1
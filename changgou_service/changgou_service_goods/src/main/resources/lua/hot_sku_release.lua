@@ -0,0 +1,21 @@
+-- 热点商品预扣释放脚本: 按预扣记录回补redis库存,并写入一条反向库存流水回补数据库
+-- KEYS[1] 热点商品库存hash  KEYS[2] 待回写数量hash  KEYS[3] 库存流水列表  KEYS[4] 预扣记录key
+-- ARGV[1] 反向库存流水id
+-- 返回值: 1 已释放  0 预扣记录不存在或已释放
+
+local reservation = redis.call( 'get', KEYS[4] )
+if not reservation then
+    return 0
+end
+local skuNums = {}
+for skuId, num in pairs( cjson.decode( reservation ).skuNums ) do
+    -- 已卸载的商品只回补数据库
+    if redis.call( 'hexists', KEYS[1], skuId ) == 1 then
+        redis.call( 'hincrby', KEYS[1], skuId, num )
+        redis.call( 'hincrby', KEYS[2], skuId, -num )
+    end
+    skuNums[skuId] = -num
+end
+redis.call( 'rpush', KEYS[3], cjson.encode( { id = ARGV[1], skuNums = skuNums } ) )
+redis.call( 'del', KEYS[4] )
+return 1
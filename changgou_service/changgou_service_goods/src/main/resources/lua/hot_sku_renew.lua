@@ -0,0 +1,9 @@
+-- 热点商品任务锁续期脚本: 锁仍由当前实例持有时才续期
+-- KEYS[1] 锁key
+-- ARGV[1] 实例id  ARGV[2] 过期时间(毫秒)
+-- 返回值: 1 续期成功  0 锁已不属于当前实例
+
+if redis.call( 'get', KEYS[1] ) == ARGV[1] then
+    return redis.call( 'pexpire', KEYS[1], ARGV[2] )
+end
+return 0
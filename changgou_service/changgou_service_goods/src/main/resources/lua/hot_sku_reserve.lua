@@ -0,0 +1,27 @@
+-- 热点商品库存预扣脚本: 所有商品库存充足时一次扣减redis库存,记录待回写数量并写入库存流水列表
+-- KEYS[1] 热点商品库存hash  KEYS[2] 待回写数量hash  KEYS[3] 库存流水列表  KEYS[4] 预扣记录key
+-- ARGV[1] 库存流水json  ARGV[2] 预扣记录过期秒数  ARGV[3...] 商品id, 扣减数量(负数为回补库存)
+-- 返回值: 未加载或库存不足的商品id,预扣成功或重复预扣时返回空列表
+
+if redis.call( 'exists', KEYS[4] ) == 1 then
+    return {}
+end
+local failed = {}
+for i = 3, #ARGV, 2 do
+    local num = tonumber( ARGV[i + 1] )
+    local stock = tonumber( redis.call( 'hget', KEYS[1], ARGV[i] ) )
+    if stock == nil or ( num > 0 and stock < num ) then
+        table.insert( failed, ARGV[i] )
+    end
+end
+if #failed > 0 then
+    return failed
+end
+for i = 3, #ARGV, 2 do
+    local num = tonumber( ARGV[i + 1] )
+    redis.call( 'hincrby', KEYS[1], ARGV[i], -num )
+    redis.call( 'hincrby', KEYS[2], ARGV[i], num )
+end
+redis.call( 'rpush', KEYS[3], ARGV[1] )
+redis.call( 'set', KEYS[4], ARGV[1], 'EX', ARGV[2] )
+return {}
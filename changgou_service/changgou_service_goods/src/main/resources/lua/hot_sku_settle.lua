@@ -0,0 +1,18 @@
+-- 热点商品库存流水结算脚本: 流水回写数据库后扣除待回写数量,同一流水只结算一次
+-- KEYS[1] 热点商品库存hash  KEYS[2] 待回写数量hash
+-- ARGV[1] 已结算流水key前缀  ARGV[2] 已结算标记过期秒数  ARGV[3...] 库存流水json
+-- 返回值: 本次结算的流水数
+
+local settled = 0
+for i = 3, #ARGV do
+    local flow = cjson.decode( ARGV[i] )
+    if redis.call( 'set', ARGV[1] .. flow.id, 1, 'NX', 'EX', ARGV[2] ) then
+        for skuId, num in pairs( flow.skuNums ) do
+            if redis.call( 'hexists', KEYS[1], skuId ) == 1 then
+                redis.call( 'hincrby', KEYS[2], skuId, -num )
+            end
+        end
+        settled = settled + 1
+    end
+end
+return settled
@@ -0,0 +1,11 @@
+-- 热点商品库存快照脚本: 同一时刻读取redis库存与待回写数量
+-- KEYS[1] 热点商品库存hash  KEYS[2] 待回写数量hash
+-- ARGV[...] 商品id
+-- 返回值: 按商品顺序排列的 库存, 待回写数量,商品未加载时库存为-1
+
+local result = {}
+for i = 1, #ARGV do
+    table.insert( result, tonumber( redis.call( 'hget', KEYS[1], ARGV[i] ) ) or -1 )
+    table.insert( result, tonumber( redis.call( 'hget', KEYS[2], ARGV[i] ) ) or 0 )
+end
+return result
@@ -0,0 +1,12 @@
+-- 热点商品卸载脚本: 库存流水全部回写数据库后才能卸载,卸载后回到数据库扣减库存
+-- KEYS[1] 热点商品库存hash  KEYS[2] 待回写数量hash
+-- ARGV[1] 商品id
+-- 返回值: 1 卸载成功  0 仍有未回写的库存流水
+
+local pending = tonumber( redis.call( 'hget', KEYS[2], ARGV[1] ) )
+if pending ~= nil and pending ~= 0 then
+    return 0
+end
+redis.call( 'hdel', KEYS[1], ARGV[1] )
+redis.call( 'hdel', KEYS[2], ARGV[1] )
+return 1
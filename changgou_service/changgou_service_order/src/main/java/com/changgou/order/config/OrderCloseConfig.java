@@ -0,0 +1,36 @@
+package com.changgou.order.config;
+
+import cn.hutool.core.thread.NamedThreadFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @Author: Haotian
+ * @Date: 2020/3/12 14:10
+ * @Description: 批量关闭订单配置,支付状态查询与微信订单关闭在有界线程池中并发执行
+ */
+@Configuration
+public class OrderCloseConfig {
+    /**
+     * 关闭订单线程池名
+     */
+    public static final String CLOSE_ORDER_EXECUTOR = "closeOrderExecutor";
+
+    /**
+     * 线程数固定,队列有界,队列满时由提交线程执行,限制对支付服务的并发请求数
+     */
+    @Bean(name = CLOSE_ORDER_EXECUTOR, destroyMethod = "shutdown")
+    public ExecutorService closeOrderExecutor(@Value("${order.close.threads:8}") int threads,
+                                              @Value("${order.close.queue-capacity:1000}") int queueCapacity) {
+        return new ThreadPoolExecutor( threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>( queueCapacity ),
+                new NamedThreadFactory( "close-order-", true ),
+                new ThreadPoolExecutor.CallerRunsPolicy() );
+    }
+}
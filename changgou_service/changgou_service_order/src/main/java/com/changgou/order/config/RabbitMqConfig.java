@@ -66,6 +66,11 @@ public class RabbitMqConfig {
      */
     public static final String ORDER_TACK = "order_tack";
 
+    /**
+     * 订单状态统计增量队列
+     */
+    public static final String ORDER_STATUS_STAT_QUEUE = "order_status_stat_queue";
+
     /**
      * 声明交换机
      */
@@ -117,6 +122,11 @@ public class RabbitMqConfig {
         return new Queue( ORDER_TACK );
     }
 
+    @Bean
+    public Queue order_status_stat_queue() {
+        return new Queue( ORDER_STATUS_STAT_QUEUE );
+    }
+
     /**
      * 队列绑定交换机
      */
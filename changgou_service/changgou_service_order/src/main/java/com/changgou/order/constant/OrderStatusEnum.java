@@ -12,7 +12,10 @@ import lombok.AllArgsConstructor;
 @AllArgsConstructor
 public enum OrderStatusEnum implements ExceptionMessage {
     NOT_FOUND_ORDER( false, StatusCode.ERROR, "订单不存在" ),
-    ORDER_IS_DELIVERY( false, StatusCode.ERROR, "订单不存在" );
+    ORDER_IS_DELIVERY( false, StatusCode.ERROR, "订单不存在" ),
+    STOCK_NOT_ENOUGH( false, StatusCode.ERROR, "商品库存不足" ),
+    INVALID_CURSOR( false, StatusCode.ERROR, "分页游标格式错误" ),
+    RESUME_STOCK_FAILED( false, StatusCode.ERROR, "回滚库存失败" );
     private boolean flag;
     private Integer code;
     private String message;
@@ -3,6 +3,7 @@ package com.changgou.order.controller;
 import cn.hutool.core.convert.Convert;
 import cn.hutool.core.date.DateUtil;
 import cn.hutool.core.util.StrUtil;
+import com.changgou.common.pojo.CursorResult;
 import com.changgou.common.pojo.PageResult;
 import com.changgou.common.pojo.Result;
 import com.changgou.common.pojo.StatusCode;
@@ -10,6 +11,7 @@ import com.changgou.order.config.TokenDecode;
 import com.changgou.order.pojo.Order;
 import com.changgou.order.pojo.OrderInfoCount;
 import com.changgou.order.service.OrderService;
+import com.changgou.order.service.OrderStatService;
 import com.github.pagehelper.Page;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
@@ -31,6 +33,8 @@ public class OrderController {
     private OrderService orderService;
     @Autowired
     private TokenDecode tokenDecode;
+    @Autowired
+    private OrderStatService orderStatService;
 
     /**
      * 查询全部订单数据
@@ -147,6 +151,25 @@ public class OrderController {
                         .rows( pageList.getResult() ).build() ).build();
     }
 
+    /**
+     * 游标分页搜索，适用于大量历史订单的翻页浏览
+     *
+     * @param searchMap 搜索条件
+     * @param cursor    上一页返回的游标，查询第一页时不传
+     * @param size      每页显示条数
+     * @return 分页结果
+     */
+    @GetMapping("/search/cursor/{size}")
+    public Result<CursorResult<Order>> findByCursor(@RequestParam Map<String, Object> searchMap,
+                                                    @RequestParam(value = "cursor", required = false) String cursor,
+                                                    @PathVariable("size") Integer size) {
+        return Result.<CursorResult<Order>>builder()
+                .flag( true )
+                .code( StatusCode.OK )
+                .message( "查询成功" )
+                .data( orderService.findByCursor( searchMap, cursor, size ) ).build();
+    }
+
     /**
      * 批量发货
      *
@@ -185,4 +208,21 @@ public class OrderController {
         }
         return orderService.findAllInfoCount( start, end );
     }
+
+    /**
+     * 从订单表重新统计时间段内的订单状态统计
+     *
+     * @param startTime 开始时间戳
+     * @param endTime   结束时间戳
+     * @return 统计项数
+     */
+    @PostMapping("/stat/rebuild")
+    public Result<Object> rebuildStat(@RequestParam("startTime") Long startTime, @RequestParam("endTime") Long endTime) {
+        int count = orderStatService.rebuild( DateUtil.date( startTime ), DateUtil.date( endTime ) );
+        return Result.builder()
+                .flag( true )
+                .code( StatusCode.OK )
+                .message( "订单统计重建成功" )
+                .data( count ).build();
+    }
 }
\ No newline at end of file
@@ -1,13 +1,29 @@
 package com.changgou.order.dao;
 
 import com.changgou.order.pojo.OrderItem;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Param;
 import tk.mybatis.mapper.common.Mapper;
 
+import java.util.List;
+
 /**
  * @Author: Haotian
  * @Date: 2020/2/27 22:07
  * @Description: 订单项通用接口
  **/
 public interface OrderItemMapper extends Mapper<OrderItem> {
-
-}
\ No newline at end of file
+    /**
+     * 批量新增订单项,一个订单的全部订单项一条语句写入
+     *
+     * @param orderItems 订单项集合
+     * @return 影响行数
+     */
+    @Insert("<script>insert into tb_order_item(id,category_id1,category_id2,category_id3,spu_id,sku_id,order_id,name," +
+            "price,num,money,pay_money,image,weight,post_fee,is_return) values " +
+            "<foreach collection='orderItems' item='i' separator=','>" +
+            "(#{i.id},#{i.categoryId1},#{i.categoryId2},#{i.categoryId3},#{i.spuId},#{i.skuId},#{i.orderId},#{i.name}," +
+            "#{i.price},#{i.num},#{i.money},#{i.payMoney},#{i.image},#{i.weight},#{i.postFee},#{i.isReturn})" +
+            "</foreach></script>")
+    int insertBatch(@Param("orderItems") List<OrderItem> orderItems);
+}
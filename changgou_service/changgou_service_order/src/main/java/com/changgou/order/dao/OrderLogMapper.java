@@ -1,13 +1,27 @@
 package com.changgou.order.dao;
 
 import com.changgou.order.pojo.OrderLog;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Param;
 import tk.mybatis.mapper.common.Mapper;
 
+import java.util.List;
+
 /**
  * @Author: Haotian
  * @Date: 2020/3/2 18:42
  * @Description: 订单日志通用接口
  **/
 public interface OrderLogMapper extends Mapper<OrderLog> {
-
-}
\ No newline at end of file
+    /**
+     * 批量新增订单日志
+     *
+     * @param orderLogs 订单日志集合
+     * @return 影响行数
+     */
+    @Insert("<script>insert into tb_order_log(id,operater,operate_time,order_id,order_status,pay_status,consign_status,remarks) values " +
+            "<foreach collection='orderLogs' item='l' separator=','>" +
+            "(#{l.id},#{l.operater},#{l.operateTime},#{l.orderId},#{l.orderStatus},#{l.payStatus},#{l.consignStatus},#{l.remarks})" +
+            "</foreach></script>")
+    int insertBatch(@Param("orderLogs") List<OrderLog> orderLogs);
+}
@@ -3,9 +3,13 @@ package com.changgou.order.dao;
 import com.changgou.order.pojo.Order;
 import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
 import tk.mybatis.mapper.common.Mapper;
+import tk.mybatis.mapper.entity.Example;
 
+import java.util.Collection;
 import java.util.Date;
+import java.util.List;
 
 /**
  * @Author: Haotian
@@ -62,4 +66,108 @@ public interface OrderMapper extends Mapper<Order> {
      */
     @Select("SELECT count(*) FROM tb_order where update_time >=#{startTime} and update_time<=#{endTime} and order_status='4'")
     int closeOrderCount(@Param("startTime") Date startTime, @Param("endTime") Date endTime);
-}
\ No newline at end of file
+
+    /**
+     * 锁定仍未支付且未关闭的订单
+     *
+     * @param ids 订单号集合
+     * @return 可关闭的订单号
+     */
+    @Select("<script>" +
+            "select id from tb_order where id in " +
+            "<foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach>" +
+            " and pay_status='0' and order_status='0' order by id for update" +
+            "</script>")
+    List<String> lockUnpaidOrders(@Param("ids") Collection<String> ids);
+
+    /**
+     * 批量关闭未支付订单
+     *
+     * @param ids        订单号集合
+     * @param updateTime 关闭时间
+     * @return 影响行数
+     */
+    @Update("<script>" +
+            "update tb_order set order_status='4',update_time=#{updateTime} where id in " +
+            "<foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach>" +
+            " and pay_status='0' and order_status='0'" +
+            "</script>")
+    int closeUnpaidOrders(@Param("ids") Collection<String> ids, @Param("updateTime") Date updateTime);
+
+    /**
+     * 锁定待发货校验的订单
+     *
+     * @param ids 订单号集合
+     * @return 订单号与订单状态
+     */
+    @Select("<script>" +
+            "select id,order_status,consign_status from tb_order where id in " +
+            "<foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach>" +
+            " order by id for update" +
+            "</script>")
+    List<Order> lockOrders(@Param("ids") Collection<String> ids);
+
+    /**
+     * 批量发货，按订单写入各自的物流公司与运单号，只修改已支付未发货的订单
+     *
+     * @param orders      订单号与物流信息集合
+     * @param consignTime 发货时间
+     * @return 影响行数
+     */
+    @Update("<script>" +
+            "update tb_order set order_status='2',consign_status='1',consign_time=#{consignTime},update_time=#{consignTime}," +
+            "shipping_name=case id <foreach collection='orders' item='o'>when #{o.id} then #{o.shippingName} </foreach>end," +
+            "shipping_code=case id <foreach collection='orders' item='o'>when #{o.id} then #{o.shippingCode} </foreach>end " +
+            "where id in <foreach collection='orders' item='o' open='(' separator=',' close=')'>#{o.id}</foreach>" +
+            " and order_status='1' and consign_status='0'" +
+            "</script>")
+    int shipOrders(@Param("orders") List<Order> orders, @Param("consignTime") Date consignTime);
+
+    /**
+     * 按订单号顺序锁定一批超过自动收货期限的已发货订单
+     *
+     * @param cutoff  发货时间上限
+     * @param afterId 上一批最后一个订单号，从该订单号之后开始查询
+     * @param limit   每批数量
+     * @return 订单号
+     */
+    @Select("select id from tb_order where id > #{afterId} and order_status='2' and consign_status='1' and consign_time < #{cutoff} " +
+            "order by id limit #{limit} for update")
+    List<String> lockTackOrders(@Param("cutoff") Date cutoff, @Param("afterId") String afterId, @Param("limit") int limit);
+
+    /**
+     * 批量确认收货
+     *
+     * @param ids     订单号集合
+     * @param endTime 确认收货时间
+     * @return 影响行数
+     */
+    @Update("<script>" +
+            "update tb_order set order_status='3',consign_status='2',end_time=#{endTime},update_time=#{endTime} where id in " +
+            "<foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach>" +
+            " and order_status='2' and consign_status='1'" +
+            "</script>")
+    int tackOrders(@Param("ids") Collection<String> ids, @Param("endTime") Date endTime);
+
+    /**
+     * 按查询条件统计订单数，最多统计到上限
+     *
+     * @param example 查询条件
+     * @param limit   统计上限
+     * @return 订单数，等于上限时表示不少于上限
+     */
+    @Select("<script>" +
+            "select count(*) from (select 1 from tb_order" +
+            "<where><foreach collection='example.oredCriteria' item='criteria' separator=' or '>" +
+            "<if test='criteria.valid'><trim prefix='(' prefixOverrides='and ' suffix=')'>" +
+            "<foreach collection='criteria.criteria' item='criterion'><choose>" +
+            "<when test='criterion.noValue'> and ${criterion.condition}</when>" +
+            "<when test='criterion.singleValue'> and ${criterion.condition} #{criterion.value}</when>" +
+            "<when test='criterion.betweenValue'> and ${criterion.condition} #{criterion.value} and #{criterion.secondValue}</when>" +
+            "<when test='criterion.listValue'> and ${criterion.condition}" +
+            "<foreach collection='criterion.value' item='value' open='(' separator=',' close=')'>#{value}</foreach></when>" +
+            "</choose></foreach></trim></if></foreach></where>" +
+            " limit #{limit}) t" +
+            "</script>")
+    long countByExampleWithLimit(@Param("example") Example example, @Param("limit") int limit);
+}
@@ -0,0 +1,63 @@
+package com.changgou.order.dao;
+
+import com.changgou.order.stat.OrderStatusStat;
+import org.apache.ibatis.annotations.Delete;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * @Author: Haotian
+ * @Date: 2020/3/13 10:15
+ * @Description: 订单状态按小时统计接口
+ **/
+public interface OrderStatusHourlyMapper {
+    /**
+     * 批量累加统计增量
+     *
+     * @param stats 统计增量
+     * @return 影响行数
+     */
+    @Insert("<script>insert into tb_order_status_hourly(stat_hour,order_status,pay_status,consign_status,num) values " +
+            "<foreach collection='stats' item='s' separator=','>" +
+            "(#{s.statHour},#{s.orderStatus},#{s.payStatus},#{s.consignStatus},#{s.num})" +
+            "</foreach> on duplicate key update num=num+values(num)</script>")
+    int addBatch(@Param("stats") List<OrderStatusStat> stats);
+
+    /**
+     * 按状态汇总时间段内的订单数
+     *
+     * @param startHour 开始小时
+     * @param endHour   结束小时
+     * @return 各状态订单数
+     */
+    @Select("SELECT order_status orderStatus,pay_status payStatus,consign_status consignStatus,sum(num) num FROM tb_order_status_hourly " +
+            "where stat_hour >=#{startHour} and stat_hour<=#{endHour} group by order_status,pay_status,consign_status")
+    List<OrderStatusStat> sumByStatus(@Param("startHour") Date startHour, @Param("endHour") Date endHour);
+
+    /**
+     * 删除时间段内的统计
+     *
+     * @param startHour 开始小时
+     * @param endHour   结束小时
+     * @return 影响行数
+     */
+    @Delete("delete from tb_order_status_hourly where stat_hour >=#{startHour} and stat_hour<#{endHour}")
+    int deleteRange(@Param("startHour") Date startHour, @Param("endHour") Date endHour);
+
+    /**
+     * 从订单表重新统计时间段内的数据
+     *
+     * @param startHour 开始小时
+     * @param endHour   结束小时
+     * @return 影响行数
+     */
+    @Insert("insert into tb_order_status_hourly(stat_hour,order_status,pay_status,consign_status,num) " +
+            "select date_format(update_time,'%Y-%m-%d %H:00:00'),ifnull(order_status,''),ifnull(pay_status,''),ifnull(consign_status,''),count(*) from tb_order " +
+            "where update_time >=#{startHour} and update_time<#{endHour} " +
+            "group by date_format(update_time,'%Y-%m-%d %H:00:00'),order_status,pay_status,consign_status")
+    int rebuildRange(@Param("startHour") Date startHour, @Param("endHour") Date endHour);
+}
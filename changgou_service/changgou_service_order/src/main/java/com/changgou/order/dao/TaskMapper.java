@@ -1,11 +1,14 @@
 package com.changgou.order.dao;
 
 import com.changgou.order.pojo.Task;
+import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Result;
 import org.apache.ibatis.annotations.Results;
 import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
 import tk.mybatis.mapper.common.Mapper;
 
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 
@@ -16,12 +19,26 @@ import java.util.List;
  */
 public interface TaskMapper extends Mapper<Task> {
     /**
-     * 查询最新任务(更新时间小于当前时间)
+     * 按更新时间顺序领取一批到期任务，更新时间推迟到租约到期时间，租约期内其他实例不会重复领取
      *
-     * @param currentTime 当前时间
-     * @return 最新任务
+     * @param claimToken 本批次标识
+     * @param now        当前时间
+     * @param leaseUntil 租约到期时间
+     * @param limit      每批数量
+     * @return 领取的任务数
      */
-    @Select("select * from tb_task where update_time<#{currentTime}")
+    @Update("update tb_task set claim_token=#{claimToken},update_time=#{leaseUntil} where update_time<#{now} " +
+            "order by update_time limit #{limit}")
+    int claimTasks(@Param("claimToken") String claimToken, @Param("now") Date now,
+                   @Param("leaseUntil") Date leaseUntil, @Param("limit") int limit);
+
+    /**
+     * 查询本批次领取的任务
+     *
+     * @param claimToken 本批次标识
+     * @return 任务集合
+     */
+    @Select("select * from tb_task where claim_token=#{claimToken}")
     @Results({@Result(column = "create_time", property = "createTime"),
             @Result(column = "update_time", property = "updateTime"),
             @Result(column = "delete_time", property = "deleteTime"),
@@ -30,6 +47,43 @@ public interface TaskMapper extends Mapper<Task> {
             @Result(column = "mq_routingkey", property = "mqRoutingkey"),
             @Result(column = "request_body", property = "requestBody"),
             @Result(column = "status", property = "status"),
-            @Result(column = "errormsg", property = "errormsg")})
-    List<Task> findTaskLessThanCurrentTime(Date currentTime);
-}
\ No newline at end of file
+            @Result(column = "errormsg", property = "errormsg"),
+            @Result(column = "claim_token", property = "claimToken"),
+            @Result(column = "retry_count", property = "retryCount")})
+    List<Task> findClaimedTasks(@Param("claimToken") String claimToken);
+
+    /**
+     * 标记已确认发送的任务，按已发送次数指数退避，等待用户服务回执超时后再次发送
+     *
+     * @param ids        任务id集合
+     * @param claimToken 本批次标识，租约过期被其他实例领取的任务不修改
+     * @param now        当前时间
+     * @param delay      首次等待回执的秒数
+     * @param maxDelay   最长等待回执的秒数
+     * @return 影响行数
+     */
+    @Update("<script>" +
+            "update tb_task set claim_token=null,status='SENT'," +
+            "update_time=date_add(#{now},interval least(#{delay}*pow(2,ifnull(retry_count,0)),#{maxDelay}) second)," +
+            "retry_count=ifnull(retry_count,0)+1 where id in " +
+            "<foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach>" +
+            " and claim_token=#{claimToken}" +
+            "</script>")
+    int markSent(@Param("ids") Collection<Long> ids, @Param("claimToken") String claimToken, @Param("now") Date now,
+                 @Param("delay") long delay, @Param("maxDelay") long maxDelay);
+
+    /**
+     * 释放发送失败的任务，到重试时间后重新领取
+     *
+     * @param ids        任务id集合
+     * @param claimToken 本批次标识
+     * @param retryTime  重试时间
+     * @return 影响行数
+     */
+    @Update("<script>" +
+            "update tb_task set claim_token=null,update_time=#{retryTime} where id in " +
+            "<foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach>" +
+            " and claim_token=#{claimToken}" +
+            "</script>")
+    int releaseTasks(@Param("ids") Collection<Long> ids, @Param("claimToken") String claimToken, @Param("retryTime") Date retryTime);
+}
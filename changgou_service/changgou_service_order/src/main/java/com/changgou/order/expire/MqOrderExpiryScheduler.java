@@ -0,0 +1,26 @@
+package com.changgou.order.expire;
+
+import com.changgou.order.config.RabbitMqConfig;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.Date;
+
+/**
+ * @Author: Haotian
+ * @Date: 2020/3/12 10:20
+ * @Description: 基于死信队列的订单超时调度器,每个订单一条延迟消息,超时时间为队列固定TTL
+ */
+@Component
+@ConditionalOnProperty(name = "order.expiry.scheduler", havingValue = "mq")
+public class MqOrderExpiryScheduler implements OrderExpiryScheduler {
+    @Autowired
+    private RabbitTemplate rabbitTemplate;
+
+    @Override
+    public void schedule(String orderId, Date createTime) {
+        rabbitTemplate.convertAndSend( "", RabbitMqConfig.QUEUE_ORDER_CREATE, orderId );
+    }
+}
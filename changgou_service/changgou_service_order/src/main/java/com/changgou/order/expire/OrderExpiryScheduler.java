@@ -0,0 +1,19 @@
+package com.changgou.order.expire;
+
+import java.util.Date;
+
+/**
+ * @Author: Haotian
+ * @Date: 2020/3/12 10:10
+ * @Description: 订单超时调度器,订单到期后由实现类负责触发关闭订单
+ * 通过 order.expiry.scheduler 选择实现: redis(默认) 或 mq(固定TTL死信队列)
+ */
+public interface OrderExpiryScheduler {
+    /**
+     * 登记订单的超时时间
+     *
+     * @param orderId    订单号
+     * @param createTime 订单创建时间
+     */
+    void schedule(String orderId, Date createTime);
+}
@@ -0,0 +1,59 @@
+package com.changgou.order.expire;
+
+import com.changgou.order.dao.OrderConfigMapper;
+import com.changgou.order.pojo.OrderConfig;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @Author: Haotian
+ * @Date: 2020/3/12 10:15
+ * @Description: 订单超时时间,取自 tb_order_config 并按刷新间隔缓存,避免每次下单查询配置表
+ */
+@Slf4j
+@Component
+public class OrderTimeoutConfig {
+    /**
+     * 订单配置id
+     */
+    private static final int ORDER_CONFIG_ID = 1;
+    /**
+     * 配置表未设置时的默认超时时间(分)
+     */
+    @Value("${order.expiry.default-timeout:30}")
+    private int defaultTimeout;
+    /**
+     * 配置缓存刷新间隔(毫秒)
+     */
+    @Value("${order.expiry.config-refresh:60000}")
+    private long refreshInterval;
+    @Autowired
+    private OrderConfigMapper orderConfigMapper;
+    private volatile long timeoutMillis;
+    private volatile long expireTime;
+
+    /**
+     * 正常订单超时时间(毫秒)
+     */
+    public long timeoutMillis() {
+        long now = System.currentTimeMillis();
+        if (now >= expireTime) {
+            int timeout = defaultTimeout;
+            try {
+                OrderConfig orderConfig = orderConfigMapper.selectByPrimaryKey( ORDER_CONFIG_ID );
+                if (orderConfig != null && orderConfig.getOrderTimeout() != null && orderConfig.getOrderTimeout() > 0) {
+                    timeout = orderConfig.getOrderTimeout();
+                }
+            } catch (RuntimeException e) {
+                log.error( "读取订单超时配置失败，使用默认超时时间 {} 分钟", defaultTimeout, e );
+            }
+            timeoutMillis = TimeUnit.MINUTES.toMillis( timeout );
+            expireTime = now + refreshInterval;
+        }
+        return timeoutMillis;
+    }
+}
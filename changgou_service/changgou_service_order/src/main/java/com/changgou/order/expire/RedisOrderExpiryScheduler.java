@@ -0,0 +1,78 @@
+package com.changgou.order.expire;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.scripting.support.ResourceScriptSource;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * @Author: Haotian
+ * @Date: 2020/3/12 10:30
+ * @Description: 基于 redis zset 的订单超时调度器,按订单到期时间排序持久化,
+ * 由定时任务按批领取到期订单,不再为每个订单发送一条延迟消息
+ */
+@Component
+@ConditionalOnProperty(name = "order.expiry.scheduler", havingValue = "redis", matchIfMissing = true)
+public class RedisOrderExpiryScheduler implements OrderExpiryScheduler {
+    /**
+     * 订单超时zset 订单号: 到期时间
+     */
+    private static final String ORDER_EXPIRY_KEY = "order_expiry";
+
+    private final DefaultRedisScript<List> claimScript;
+    /**
+     * 领取后的租约时间(毫秒),租约内未处理完成的订单将被重新领取
+     */
+    @Value("${order.expiry.lease-timeout:60000}")
+    private long leaseTimeout;
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+    @Autowired
+    private OrderTimeoutConfig orderTimeoutConfig;
+
+    public RedisOrderExpiryScheduler() {
+        claimScript = new DefaultRedisScript<>();
+        claimScript.setScriptSource( new ResourceScriptSource( new ClassPathResource( "lua/order_expiry_claim.lua" ) ) );
+        claimScript.setResultType( List.class );
+    }
+
+    @Override
+    public void schedule(String orderId, Date createTime) {
+        long deadline = createTime.getTime() + orderTimeoutConfig.timeoutMillis();
+        stringRedisTemplate.opsForZSet().add( ORDER_EXPIRY_KEY, orderId, deadline );
+    }
+
+    /**
+     * 领取一批已到期的订单
+     *
+     * @param count 最多领取的数量
+     * @return 订单号
+     */
+    @SuppressWarnings("unchecked")
+    public List<String> claim(int count) {
+        long now = System.currentTimeMillis();
+        List<String> orderIds = stringRedisTemplate.execute( claimScript, Collections.singletonList( ORDER_EXPIRY_KEY ),
+                String.valueOf( now ), String.valueOf( count ), String.valueOf( now + leaseTimeout ) );
+        return orderIds == null ? Collections.emptyList() : orderIds;
+    }
+
+    /**
+     * 删除已处理的订单
+     *
+     * @param orderIds 订单号
+     */
+    public void complete(Collection<String> orderIds) {
+        if (!orderIds.isEmpty()) {
+            stringRedisTemplate.opsForZSet().remove( ORDER_EXPIRY_KEY, orderIds.toArray() );
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.changgou.order.listener;
+
+import com.alibaba.fastjson.JSON;
+import com.changgou.order.config.RabbitMqConfig;
+import com.changgou.order.service.OrderStatService;
+import com.changgou.order.stat.OrderStatusStat;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * @Author: Haotian
+ * @Date: 2020/3/13 10:40
+ * @Description: 订单状态统计增量监听类,增量由 canal 监听订单表变化后发送
+ */
+@Component
+public class OrderStatusStatListener {
+    @Autowired
+    private OrderStatService orderStatService;
+
+    @RabbitListener(queues = RabbitMqConfig.ORDER_STATUS_STAT_QUEUE)
+    public void receiveStatusStat(String message) {
+        orderStatService.addDeltas( JSON.parseArray( message, OrderStatusStat.class ) );
+    }
+}
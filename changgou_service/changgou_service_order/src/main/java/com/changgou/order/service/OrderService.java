@@ -1,6 +1,7 @@
 package com.changgou.order.service;
 
 
+import com.changgou.common.pojo.CursorResult;
 import com.changgou.order.pojo.Order;
 import com.changgou.order.pojo.OrderInfoCount;
 import com.github.pagehelper.Page;
@@ -62,6 +63,8 @@ public interface OrderService {
 
     /**
      * 多条件分页查询
+     * 条件 matchMode: 用户名、收货人手机、物流单号、交易流水号的匹配方式 like(默认) exact prefix
+     * 条件 countMode: 总记录数统计方式 exact(默认) estimate(最多统计到上限) none(不统计)
      *
      * @param searchMap 条件集合
      * @param pageNum   当前页码
@@ -70,6 +73,17 @@ public interface OrderService {
      */
     Page<Order> findPage(Map<String, Object> searchMap, Integer pageNum, Integer pageSize);
 
+    /**
+     * 按创建时间倒序的游标分页查询，翻页深度不影响查询速度
+     * 条件 matchMode 默认为 prefix
+     *
+     * @param searchMap 条件集合
+     * @param cursor    上一页返回的游标，查询第一页时为空
+     * @param size      每页显示条数
+     * @return 分页结果
+     */
+    CursorResult<Order> findByCursor(Map<String, Object> searchMap, String cursor, Integer size);
+
     /**
      * 修改订单支付状态，并记录日志
      *
@@ -86,10 +100,18 @@ public interface OrderService {
     void closeOrder(String orderId);
 
     /**
-     * 批量发货
+     * 批量关闭超时订单，并发查询支付状态，一个事务内关闭未支付订单并一次回滚库存
+     *
+     * @param orderIds 订单号集合
+     * @return 已处理的订单号，查询支付状态或关闭失败的订单不包含在内，需稍后重试
+     */
+    List<String> closeOrders(List<String> orderIds);
+
+    /**
+     * 批量发货，一次校验所有订单状态，一条语句发货并批量记录日志
      *
-     * @param orderList 订单集合
-     * @return 提示信息
+     * @param orderList 订单集合，包含订单号、物流公司与运单号
+     * @return 提示信息，results 为每个订单的处理结果
      */
     Map<String, Object> batchSend(List<Order> orderList);
 
@@ -0,0 +1,38 @@
+package com.changgou.order.service;
+
+import com.changgou.order.stat.OrderStatusStat;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * @Author: Haotian
+ * @Date: 2020/3/13 10:20
+ * @Description: 订单状态统计服务
+ */
+public interface OrderStatService {
+    /**
+     * 累加订单状态变化产生的统计增量
+     *
+     * @param deltas 统计增量
+     */
+    void addDeltas(List<OrderStatusStat> deltas);
+
+    /**
+     * 一次汇总时间段内的订单状态统计
+     *
+     * @param startTime 开始时间
+     * @param endTime   结束时间
+     * @return 依次为待付款、待发货、已发货、已完成、已关闭订单数
+     */
+    int[] countByStatus(Date startTime, Date endTime);
+
+    /**
+     * 从订单表重新统计时间段内的数据,用于初始化或修正统计,逐小时单独提交事务
+     *
+     * @param startTime 开始时间
+     * @param endTime   结束时间
+     * @return 统计项数
+     */
+    int rebuild(Date startTime, Date endTime);
+}
@@ -14,4 +14,12 @@ public interface TaskService {
      * @param task 任务信息
      */
     void delTask(Task task);
+
+    /**
+     * 领取一批到期任务发送到消息队列，mq 确认后标记为已发送
+     *
+     * @param batchSize 每批领取的任务数
+     * @return 领取的任务数与发送成功的任务数
+     */
+    int[] relayTasks(int batchSize);
 }
\ No newline at end of file
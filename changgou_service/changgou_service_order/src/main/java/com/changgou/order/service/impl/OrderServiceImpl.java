@@ -10,28 +10,41 @@ import cn.hutool.core.util.ObjectUtil;
 import cn.hutool.core.util.StrUtil;
 import com.alibaba.fastjson.JSON;
 import com.alibaba.fescar.spring.annotation.GlobalTransactional;
+import com.changgou.common.pojo.CursorResult;
+import com.changgou.common.pojo.Result;
 import com.changgou.goods.feign.SkuFeign;
+import com.changgou.order.config.OrderCloseConfig;
 import com.changgou.order.config.RabbitMqConfig;
 import com.changgou.order.constant.OrderStatusEnum;
 import com.changgou.order.dao.*;
 import com.changgou.order.exception.OrderException;
+import com.changgou.order.expire.OrderExpiryScheduler;
 import com.changgou.order.pojo.*;
 import com.changgou.order.service.CartService;
 import com.changgou.order.service.OrderService;
+import com.changgou.order.service.OrderStatService;
 import com.changgou.pay.feign.PayFeign;
 import com.github.pagehelper.Page;
 import com.github.pagehelper.PageHelper;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import tk.mybatis.mapper.entity.Example;
 
 import javax.validation.constraints.NotNull;
 import java.time.LocalDate;
+import java.time.ZoneId;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * @Author: Haotian
@@ -45,6 +58,29 @@ public class OrderServiceImpl implements OrderService {
      * 微信交易状态返回字段
      */
     private static final String TRADE_STATE = "trade_state";
+    /**
+     * 确定未支付的微信交易状态: 未支付、已关闭、已撤销、支付失败
+     */
+    private static final Set<String> UNPAID_TRADE_STATES = new HashSet<>( Arrays.asList( "NOTPAY", "CLOSED", "REVOKED", "PAYERROR" ) );
+    /**
+     * 关闭订单回滚库存的回补id前缀，同一订单重复回补时由商品服务去重
+     */
+    private static final String RESTOCK_ID_PREFIX = "close:";
+    /**
+     * 自动收货进度,记录最后一个已处理的订单号
+     */
+    private static final String AUTO_TACK_CHECKPOINT_KEY = "order_auto_tack_checkpoint";
+    /**
+     * 索引字段匹配方式 like: 包含  exact: 精确  prefix: 前缀
+     */
+    private static final String MATCH_LIKE = "like";
+    private static final String MATCH_EXACT = "exact";
+    private static final String MATCH_PREFIX = "prefix";
+    /**
+     * 总记录数统计方式 exact: 精确统计  estimate: 最多统计到上限  none: 不统计
+     */
+    private static final String COUNT_EXACT = "exact";
+    private static final String COUNT_ESTIMATE = "estimate";
     @Autowired
     private OrderMapper orderMapper;
     @Autowired
@@ -64,7 +100,39 @@ public class OrderServiceImpl implements OrderService {
     @Autowired
     private RedisTemplate redisTemplate;
     @Autowired
-    private RabbitTemplate rabbitTemplate;
+    private OrderExpiryScheduler orderExpiryScheduler;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @Autowired
+    @Qualifier(OrderCloseConfig.CLOSE_ORDER_EXECUTOR)
+    private ExecutorService closeOrderExecutor;
+    /**
+     * 批量查询支付状态的总超时时间(毫秒)
+     */
+    @Value("${order.close.query-timeout:10000}")
+    private long queryTimeout;
+    /**
+     * 自动收货每批处理的订单数
+     */
+    @Value("${order.tack.chunk-size:500}")
+    private int tackChunkSize;
+    /**
+     * 订单统计是否使用按小时预聚合的统计表
+     */
+    @Value("${order.stat.rollup-enabled:false}")
+    private boolean statRollupEnabled;
+    @Autowired
+    private OrderStatService orderStatService;
+    /**
+     * 估算总记录数时最多统计的条数
+     */
+    @Value("${order.page.count-limit:10000}")
+    private int pageCountLimit;
+    /**
+     * 游标分页每页最大条数
+     */
+    @Value("${order.page.max-size:100}")
+    private int pageMaxSize;
 
     private Snowflake snowflake = IdUtil.createSnowflake( 1, 1 );
 
@@ -101,35 +169,49 @@ public class OrderServiceImpl implements OrderService {
         order.setConsignStatus( "0" );
         orderMapper.insertSelective( order );
 
-        //4.填充订单项数据并保存到tb_order_item
+        //4.填充订单项数据并一次批量保存到tb_order_item
+        Map<String, Integer> skuNums = new HashMap<>( orderItemList.size() * 2 );
         for (OrderItem orderItem : orderItemList) {
             orderItem.setId( snowflake.nextIdStr() );
             orderItem.setIsReturn( "0" );
             orderItem.setOrderId( orderId );
-            orderItemMapper.insertSelective( orderItem );
-        }
-        //5.扣减库存
-        skuFeign.decrCount( order.getUsername() );
-        //int i = 1 / 0;
-        //Fixme: 2020/3/3 17:58 如果下单就进行积分添加，关闭订单时积分必须回滚，或者将添加积分任务放在支付成功后进行
-        //6.添加任务数据
-        log.info( "开始向订单数据库的任务表添加任务数据" );
-        //构件mq消息体内容
-        Map<String, Object> map = MapUtil.<String, Object>builder()
-                .put( "username", order.getUsername() )
-                .put( "orderId", orderId )
-                .put( "point", order.getPayMoney() ).build();
-        Task task = Task.builder().
-                createTime( new Date() ).updateTime( new Date() )
-                .mqExchange( RabbitMqConfig.EX_BUYING_ADD_POINT_USER )
-                .mqRoutingkey( RabbitMqConfig.CG_BUYING_ADD_POINT_KEY )
-                .requestBody( JSON.toJSONString( map ) ).build();
-        taskMapper.insertSelective( task );
+            skuNums.merge( orderItem.getSkuId(), orderItem.getNum(), Integer::sum );
+        }
+        if (!orderItemList.isEmpty()) {
+            orderItemMapper.insertBatch( orderItemList );
+        }
+        //全局事务回滚不会恢复 redis 中预扣的热点商品库存，下单失败时按订单id释放
+        try {
+            //5.一次扣减所有商品库存，库存不足时回滚全局事务
+            Result<List<String>> decrResult = skuFeign.decrCounts( orderId, skuNums );
+            if (!decrResult.isFlag()) {
+                log.warn( "订单 {} 商品库存不足: {}", orderId, decrResult.getData() );
+                throw new OrderException( OrderStatusEnum.STOCK_NOT_ENOUGH );
+            }
+            //int i = 1 / 0;
+            //Fixme: 2020/3/3 17:58 如果下单就进行积分添加，关闭订单时积分必须回滚，或者将添加积分任务放在支付成功后进行
+            //6.添加任务数据
+            log.info( "开始向订单数据库的任务表添加任务数据" );
+            //构件mq消息体内容
+            Map<String, Object> map = MapUtil.<String, Object>builder()
+                    .put( "username", order.getUsername() )
+                    .put( "orderId", orderId )
+                    .put( "point", order.getPayMoney() ).build();
+            Task task = Task.builder().
+                    createTime( new Date() ).updateTime( new Date() )
+                    .mqExchange( RabbitMqConfig.EX_BUYING_ADD_POINT_USER )
+                    .mqRoutingkey( RabbitMqConfig.CG_BUYING_ADD_POINT_KEY )
+                    .requestBody( JSON.toJSONString( map ) ).build();
+            taskMapper.insertSelective( task );
 
-        //7.从redis中删除购物车数据
-        redisTemplate.delete( "cart_" + order.getUsername() );
-        //8.发送延迟消息
-        rabbitTemplate.convertAndSend( "", RabbitMqConfig.QUEUE_ORDER_CREATE, orderId );
+            //7.从redis中删除购物车数据
+            redisTemplate.delete( "cart_" + order.getUsername() );
+            //8.登记订单超时时间
+            orderExpiryScheduler.schedule( orderId, order.getCreateTime() );
+        } catch (RuntimeException e) {
+            skuFeign.releaseReservation( orderId );
+            throw e;
+        }
         return orderId;
     }
 
@@ -157,7 +239,7 @@ public class OrderServiceImpl implements OrderService {
 
         }
         //4.如未支付，关闭订单
-        if ("NOTPAY".equals( payStatus )) {
+        if (isUnpaid( wxQueryMap )) {
             order.setUpdateTime( new Date() );
             order.setOrderStatus( "4" );
             orderMapper.updateByPrimaryKey( order );
@@ -171,16 +253,97 @@ public class OrderServiceImpl implements OrderService {
             orderLogMapper.insertSelective( orderLog );
             //回滚库存
             OrderItem orderItem = OrderItem.builder().orderId( order.getId() ).build();
-            List<OrderItem> orderItemList = orderItemMapper.select( orderItem );
-            for (OrderItem item : orderItemList) {
-                skuFeign.resumeStockNumber( item.getSkuId(), item.getNum() );
-            }
+            resumeStock( orderItemMapper.select( orderItem ) );
             //关闭微信订单
             payFeign.closeOrder( orderId );
             log.info( "关闭订单" );
         }
     }
 
+    @Override
+    public List<String> closeOrders(List<String> orderIds) {
+        List<String> handled = new ArrayList<>( orderIds.size() );
+        if (orderIds.isEmpty()) {
+            return handled;
+        }
+        //1.一次查询所有订单，不存在、已支付或已关闭的订单无需关闭
+        Example example = new Example( Order.class );
+        example.createCriteria().andIn( "id", orderIds );
+        Map<String, Order> orderMap = new HashMap<>( orderIds.size() * 2 );
+        for (Order order : orderMapper.selectByExample( example )) {
+            orderMap.put( order.getId(), order );
+        }
+        Map<String, Future<Map<String, String>>> queries = new LinkedHashMap<>( orderIds.size() * 2 );
+        for (String orderId : orderIds) {
+            Order order = orderMap.get( orderId );
+            if (order == null || !"0".equals( order.getPayStatus() ) || !"0".equals( order.getOrderStatus() )) {
+                handled.add( orderId );
+                continue;
+            }
+            //2.在有界线程池中并发查询微信支付状态
+            queries.put( orderId, closeOrderExecutor.submit( () ->
+                    Convert.toMap( String.class, String.class, payFeign.queryOrder( orderId ).getData() ) ) );
+        }
+        List<String> unpaidIds = new ArrayList<>( queries.size() );
+        long deadline = System.currentTimeMillis() + queryTimeout;
+        for (Map.Entry<String, Future<Map<String, String>>> query : queries.entrySet()) {
+            String orderId = query.getKey();
+            Map<String, String> wxQueryMap;
+            try {
+                wxQueryMap = query.getValue().get( Math.max( 0, deadline - System.currentTimeMillis() ), TimeUnit.MILLISECONDS );
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return handled;
+            } catch (ExecutionException | TimeoutException e) {
+                query.getValue().cancel( true );
+                log.error( "查询订单 {} 支付状态失败，稍后重试", orderId, e );
+                continue;
+            }
+            if (wxQueryMap == null) {
+                log.error( "查询订单 {} 支付状态无结果，稍后重试", orderId );
+                continue;
+            }
+            String payStatus = wxQueryMap.get( TRADE_STATE );
+            //3.已支付的订单补偿支付状态，确定未支付的订单等待批量关闭
+            if ("SUCCESS".equals( payStatus )) {
+                this.updatePayStatus( orderId, wxQueryMap.get( "transaction_id" ) );
+                handled.add( orderId );
+            } else if (isUnpaid( wxQueryMap )) {
+                unpaidIds.add( orderId );
+            } else if ("REFUND".equals( payStatus )) {
+                log.warn( "订单 {} 已转入退款，不关闭", orderId );
+                handled.add( orderId );
+            } else {
+                //用户支付中或查询失败，保留领取状态，租约到期后重新查询
+                log.info( "订单 {} 支付状态为 {}，稍后重试", orderId, payStatus );
+            }
+        }
+        if (unpaidIds.isEmpty()) {
+            return handled;
+        }
+        //4.一个事务内批量关闭订单、写入日志并一次回滚库存
+        List<String> closedIds;
+        try {
+            closedIds = transactionTemplate.execute( status -> closeUnpaidOrders( unpaidIds ) );
+        } catch (RuntimeException e) {
+            log.error( "批量关闭 {} 个订单失败，稍后重试", unpaidIds.size(), e );
+            return handled;
+        }
+        handled.addAll( unpaidIds );
+        //5.并发关闭微信订单
+        for (String orderId : closedIds) {
+            closeOrderExecutor.execute( () -> {
+                try {
+                    payFeign.closeOrder( orderId );
+                } catch (RuntimeException e) {
+                    log.error( "关闭微信订单 {} 失败", orderId, e );
+                }
+            } );
+        }
+        log.info( "批量关闭订单 {} 个", closedIds.size() );
+        return handled;
+    }
+
     @Override
     public void confirmTask(String orderId, String operator) {
         Order order = orderMapper.selectByPrimaryKey( orderId );
@@ -207,66 +370,97 @@ public class OrderServiceImpl implements OrderService {
     }
 
     @Override
-    @Transactional(rollbackFor = Exception.class)
     public void autoTack() {
         //1.从订单配置表中获取订单自动确认时间点
         OrderConfig orderConfig = orderConfigMapper.selectByPrimaryKey( 1 );
         //2.得到当前时间节点,向前数 ( 订单自动确认的时间节点 ) 天,作为过期的时间节点
         LocalDate now = LocalDate.now();
-        LocalDate date = now.plusDays( -orderConfig.getTakeTimeout() );
-        //3.从订单表中获取相关符合条件的数据 (发货时间小于过期时间,收货状态为未确认 )
-        Example example = new Example( Order.class );
-        Example.Criteria criteria = example.createCriteria();
-        criteria.andLessThan( "consignTime", date );
-        criteria.andEqualTo( "orderStatus", "2" );
-        List<Order> orderList = orderMapper.selectByExample( example );
-        //4.执行确认收货
-        for (Order order : orderList) {
-            this.confirmTask( order.getId(), "system" );
+        Date cutoff = Date.from( now.plusDays( -orderConfig.getTakeTimeout() ).atStartOfDay( ZoneId.systemDefault() ).toInstant() );
+        //3.从上次中断的订单号继续,按订单号分批确认收货,每批单独提交事务
+        String lastId = (String) redisTemplate.opsForValue().get( AUTO_TACK_CHECKPOINT_KEY );
+        if (lastId == null) {
+            lastId = "";
+        }
+        int total = 0;
+        while (true) {
+            String afterId = lastId;
+            List<String> orderIds = transactionTemplate.execute( status -> tackOrders( cutoff, afterId ) );
+            if (orderIds == null || orderIds.isEmpty()) {
+                break;
+            }
+            total += orderIds.size();
+            lastId = orderIds.get( orderIds.size() - 1 );
+            redisTemplate.opsForValue().set( AUTO_TACK_CHECKPOINT_KEY, lastId );
+            if (orderIds.size() < tackChunkSize) {
+                break;
+            }
         }
+        //4.全部处理完成,下次从头开始
+        redisTemplate.delete( AUTO_TACK_CHECKPOINT_KEY );
+        log.info( "自动确认收货完成，共 {} 个订单", total );
     }
 
     @Override
     @Transactional(rollbackFor = Exception.class)
     public Map<String, Object> batchSend(List<Order> orderList) {
-        Map<String, Object> result = new HashMap<>();
+        //订单号: 处理结果
+        Map<String, String> results = new LinkedHashMap<>( orderList.size() * 2 );
+        List<String> list = new ArrayList<>();
+        //1.判断参数是否为空
+        Map<String, Order> shipments = new LinkedHashMap<>( orderList.size() * 2 );
         for (Order order : orderList) {
-            List<String> list = new ArrayList<>();
             String orderId = order.getId();
-            boolean flag = true;
-            //1.判断参数是否为空
+            if (StrUtil.isEmpty( orderId ) || shipments.containsKey( orderId )) {
+                list.add( String.format( "订单号%s,订单号为空或重复", orderId ) );
+                continue;
+            }
             if (StrUtil.isEmpty( order.getShippingCode() ) || StrUtil.isEmpty( order.getShippingName() )) {
                 list.add( String.format( "订单号%s,请输入对应的运单号或物流公司名称", orderId ) );
-                flag = false;
+                results.put( orderId, "请输入对应的运单号或物流公司名称" );
+                continue;
             }
-            //2.校验订单状态
-            Order or = orderMapper.selectByPrimaryKey( orderId );
-            if (!"0".equals( or.getConsignStatus() ) || !"1".equals( or.getOrderStatus() )) {
-                list.add( String.format( "订单号%s,订单状态不合法", or.getId() ) );
-                flag = false;
+            shipments.put( orderId, order );
+        }
+        //2.一次查询并锁定所有订单，校验订单状态
+        if (!shipments.isEmpty()) {
+            Map<String, Order> current = new HashMap<>( shipments.size() * 2 );
+            for (Order or : orderMapper.lockOrders( shipments.keySet() )) {
+                current.put( or.getId(), or );
             }
-            if (!flag) {
-                continue;
+            Iterator<Map.Entry<String, Order>> iterator = shipments.entrySet().iterator();
+            while (iterator.hasNext()) {
+                String orderId = iterator.next().getKey();
+                Order or = current.get( orderId );
+                if (or == null || !"0".equals( or.getConsignStatus() ) || !"1".equals( or.getOrderStatus() )) {
+                    list.add( String.format( "订单号%s,订单状态不合法", orderId ) );
+                    results.put( orderId, "订单状态不合法" );
+                    iterator.remove();
+                }
             }
-            //3.修改订单状态为已发货
-            or.setOrderStatus( "2" );
-            or.setConsignStatus( "1" );
-            or.setConsignTime( new Date() );
-            or.setUpdateTime( new Date() );
-            orderMapper.selectByPrimaryKey( or );
-            //4.记录订单日志
-            OrderLog orderLog = OrderLog.builder()
-                    .id( snowflake.nextIdStr() )
-                    .operater( "admin" )
-                    .operateTime( new Date() )
-                    .orderStatus( "2" )
-                    .consignStatus( "1" )
-                    .orderId( orderId ).build();
-            orderLogMapper.insertSelective( orderLog );
-            result.put( "flag", list.size() == 0 );
-            result.put( "message", list.size() == 0 ? "批处理成功" : "批处理失败" );
-            result.put( "data", list );
         }
+        if (!shipments.isEmpty()) {
+            //3.一条语句修改订单状态为已发货
+            Date now = new Date();
+            orderMapper.shipOrders( new ArrayList<>( shipments.values() ), now );
+            //4.批量记录订单日志
+            List<OrderLog> orderLogs = new ArrayList<>( shipments.size() );
+            for (String orderId : shipments.keySet()) {
+                orderLogs.add( OrderLog.builder()
+                        .id( snowflake.nextIdStr() )
+                        .operater( "admin" )
+                        .operateTime( now )
+                        .orderStatus( "2" )
+                        .consignStatus( "1" )
+                        .orderId( orderId ).build() );
+                results.put( orderId, "发货成功" );
+            }
+            orderLogMapper.insertBatch( orderLogs );
+        }
+        Map<String, Object> result = new HashMap<>( 8 );
+        result.put( "flag", list.size() == 0 );
+        result.put( "message", list.size() == 0 ? "批处理成功" : "批处理失败" );
+        result.put( "data", list );
+        result.put( "results", results );
         return result;
     }
 
@@ -289,9 +483,68 @@ public class OrderServiceImpl implements OrderService {
 
     @Override
     public Page<Order> findPage(@NotNull Map<String, Object> searchMap, Integer pageNum, Integer pageSize) {
-        return PageHelper
-                .startPage( pageNum, pageSize )
+        String countMode = searchMap == null ? COUNT_EXACT : Convert.toStr( searchMap.get( "countMode" ), COUNT_EXACT );
+        Page<Order> page = PageHelper
+                .startPage( pageNum, pageSize, COUNT_EXACT.equals( countMode ) )
                 .doSelectPage( () -> orderMapper.selectByExample( getExample( searchMap ) ) );
+        if (COUNT_ESTIMATE.equals( countMode )) {
+            //在数据库中统计到上限即停止，总数等于上限时表示不少于上限
+            long total = orderMapper.countByExampleWithLimit( getExample( searchMap ), pageCountLimit );
+            page.setTotal( Math.max( total, (long) (page.getPageNum() - 1) * page.getPageSize() + page.size() ) );
+        }
+        return page;
+    }
+
+    @Override
+    public CursorResult<Order> findByCursor(Map<String, Object> searchMap, String cursor, Integer size) {
+        int limit = Math.min( Math.max( ObjectUtil.defaultIfNull( size, 10 ), 1 ), pageMaxSize );
+        //1.按 (create_time,id) 倒序从游标位置取下一页的订单号，多取一条判断是否还有下一页
+        Example example = getExample( searchMap, MATCH_PREFIX );
+        Example.Criteria criteria = example.getOredCriteria().get( 0 );
+        criteria.andIsNotNull( "createTime" );
+        if (StrUtil.isNotEmpty( cursor )) {
+            int index = cursor.indexOf( '_' );
+            Long time = index > 0 ? Convert.toLong( cursor.substring( 0, index ), null ) : null;
+            if (time == null || index == cursor.length() - 1) {
+                throw new OrderException( OrderStatusEnum.INVALID_CURSOR );
+            }
+            Date createTime = new Date( time );
+            //等价于 create_time < 游标时间 or (create_time = 游标时间 and id < 游标订单号)
+            criteria.andLessThanOrEqualTo( "createTime", createTime );
+            example.and()
+                    .andLessThan( "createTime", createTime )
+                    .orLessThan( "id", cursor.substring( index + 1 ) );
+        }
+        example.selectProperties( "id", "createTime" );
+        example.orderBy( "createTime" ).desc().orderBy( "id" ).desc();
+        List<Order> keys = PageHelper
+                .startPage( 1, limit + 1, false )
+                .doSelectPage( () -> orderMapper.selectByExample( example ) );
+        boolean hasNext = keys.size() > limit;
+        if (hasNext) {
+            keys = keys.subList( 0, limit );
+        }
+        if (keys.isEmpty()) {
+            return CursorResult.<Order>builder().rows( new ArrayList<>() ).build();
+        }
+        //2.按订单号查询整行数据，并保持游标顺序
+        List<String> ids = new ArrayList<>( keys.size() );
+        keys.forEach( key -> ids.add( key.getId() ) );
+        Example rowExample = new Example( Order.class );
+        rowExample.createCriteria().andIn( "id", ids );
+        Map<String, Order> orders = new HashMap<>( keys.size() * 2 );
+        orderMapper.selectByExample( rowExample ).forEach( order -> orders.put( order.getId(), order ) );
+        List<Order> rows = new ArrayList<>( keys.size() );
+        for (String id : ids) {
+            Order order = orders.get( id );
+            if (order != null) {
+                rows.add( order );
+            }
+        }
+        Order last = keys.get( keys.size() - 1 );
+        return CursorResult.<Order>builder()
+                .nextCursor( hasNext ? last.getCreateTime().getTime() + "_" + last.getId() : null )
+                .rows( rows ).build();
     }
 
     @Override
@@ -313,23 +566,35 @@ public class OrderServiceImpl implements OrderService {
         }
         //数量过少，统一增加查看效果
         int number = 100;
+        //预聚合统计表一次分组查询，未开启时逐项统计订单表
+        int[] counts;
+        if (statRollupEnabled) {
+            counts = orderStatService.countByStatus( startTime, endTime );
+        } else {
+            counts = new int[]{
+                    orderMapper.waitPayMoneyCount( startTime, endTime ),
+                    orderMapper.waitSendGoodsCount( startTime, endTime ),
+                    orderMapper.shippedGoodsCount( startTime, endTime ),
+                    orderMapper.completedCount( startTime, endTime ),
+                    orderMapper.closeOrderCount( startTime, endTime )};
+        }
         //统计信息集合
         List<OrderInfoCount> dataList = new ArrayList<>();
         dataList.add( OrderInfoCount.builder()
                 .name( "待付款订单" )
-                .value( orderMapper.waitPayMoneyCount( startTime, endTime ) + number ).build() );
+                .value( counts[0] + number ).build() );
         dataList.add( OrderInfoCount.builder()
                 .name( "待发货订单" )
-                .value( orderMapper.waitSendGoodsCount( startTime, endTime ) + number ).build() );
+                .value( counts[1] + number ).build() );
         dataList.add( OrderInfoCount.builder()
                 .name( "已发货订单" )
-                .value( orderMapper.shippedGoodsCount( startTime, endTime ) + number ).build() );
+                .value( counts[2] + number ).build() );
         dataList.add( OrderInfoCount.builder()
                 .name( "已完成订单" )
-                .value( orderMapper.completedCount( startTime, endTime ) + number ).build() );
+                .value( counts[3] + number ).build() );
         dataList.add( OrderInfoCount.builder()
                 .name( "已关闭订单" )
-                .value( orderMapper.closeOrderCount( startTime, endTime ) + number ).build() );
+                .value( counts[4] + number ).build() );
         return dataList;
     }
 
@@ -359,6 +624,100 @@ public class OrderServiceImpl implements OrderService {
         }
     }
 
+    /**
+     * 锁定并关闭仍未支付的订单，批量写入订单日志，一次回滚所有订单的库存
+     *
+     * @param orderIds 订单号集合
+     * @return 本次关闭的订单号
+     */
+    private List<String> closeUnpaidOrders(List<String> orderIds) {
+        //1.锁定仍未支付的订单，查询支付状态期间已支付的订单不关闭
+        List<String> closedIds = orderMapper.lockUnpaidOrders( orderIds );
+        if (closedIds.isEmpty()) {
+            return closedIds;
+        }
+        Date now = new Date();
+        orderMapper.closeUnpaidOrders( closedIds, now );
+        //2.批量记录日志
+        List<OrderLog> orderLogs = new ArrayList<>( closedIds.size() );
+        for (String orderId : closedIds) {
+            orderLogs.add( OrderLog.builder()
+                    .id( snowflake.nextIdStr() )
+                    .operater( "system" )
+                    .operateTime( now )
+                    .orderStatus( "4" )
+                    .orderId( orderId ).build() );
+        }
+        orderLogMapper.insertBatch( orderLogs );
+        //3.所有订单一次回滚库存，回滚失败时整批回滚，租约到期后使用相同回补id重试
+        Example example = new Example( OrderItem.class );
+        example.createCriteria().andIn( "orderId", closedIds );
+        resumeStock( orderItemMapper.selectByExample( example ) );
+        return closedIds;
+    }
+
+    /**
+     * 锁定一批超过自动收货期限的订单，一条语句确认收货并批量记录日志
+     *
+     * @param cutoff  发货时间上限
+     * @param afterId 上一批最后一个订单号
+     * @return 本批确认收货的订单号
+     */
+    private List<String> tackOrders(Date cutoff, String afterId) {
+        List<String> orderIds = orderMapper.lockTackOrders( cutoff, afterId, tackChunkSize );
+        if (orderIds.isEmpty()) {
+            return orderIds;
+        }
+        Date now = new Date();
+        orderMapper.tackOrders( orderIds, now );
+        List<OrderLog> orderLogs = new ArrayList<>( orderIds.size() );
+        for (String orderId : orderIds) {
+            orderLogs.add( OrderLog.builder()
+                    .id( snowflake.nextIdStr() )
+                    .operater( "system" )
+                    .operateTime( now )
+                    .orderStatus( "3" )
+                    .consignStatus( "2" )
+                    .orderId( orderId ).build() );
+        }
+        orderLogMapper.insertBatch( orderLogs );
+        return orderIds;
+    }
+
+    /**
+     * 按订单回滚库存，每个订单使用固定的回补id，调用超时或本地事务回滚后重试不会重复回补
+     *
+     * @param orderItems 订单项集合
+     */
+    private void resumeStock(List<OrderItem> orderItems) {
+        Map<String, Map<String, Integer>> restocks = new HashMap<>();
+        for (OrderItem orderItem : orderItems) {
+            restocks.computeIfAbsent( RESTOCK_ID_PREFIX + orderItem.getOrderId(), restockId -> new HashMap<>() )
+                    .merge( orderItem.getSkuId(), orderItem.getNum(), Integer::sum );
+        }
+        if (restocks.isEmpty()) {
+            return;
+        }
+        Result<Object> result = skuFeign.resumeCounts( restocks );
+        if (result == null || !result.isFlag()) {
+            throw new OrderException( OrderStatusEnum.RESUME_STOCK_FAILED );
+        }
+    }
+
+    /**
+     * 微信订单是否确定未支付，用户未打开支付页面时微信订单不存在，同样视为未支付
+     *
+     * @param wxQueryMap 微信订单查询结果
+     * @return 是否未支付
+     */
+    private boolean isUnpaid(Map<String, String> wxQueryMap) {
+        String tradeState = wxQueryMap.get( TRADE_STATE );
+        if (tradeState == null) {
+            return "ORDERNOTEXIST".equals( wxQueryMap.get( "err_code" ) );
+        }
+        return UNPAID_TRADE_STATES.contains( tradeState );
+    }
+
     /**
      * 条件拼接
      *
@@ -366,9 +725,21 @@ public class OrderServiceImpl implements OrderService {
      * @return example 条件对象
      */
     private Example getExample(@NotNull Map<String, Object> searchMap) {
+        return getExample( searchMap, MATCH_LIKE );
+    }
+
+    /**
+     * 构建查询条件
+     *
+     * @param searchMap        条件集合
+     * @param defaultMatchMode 条件中未指定 matchMode 时索引字段的匹配方式
+     * @return 查询条件
+     */
+    private Example getExample(Map<String, Object> searchMap, String defaultMatchMode) {
         Example example = new Example( Order.class );
         Example.Criteria criteria = example.createCriteria();
         if (searchMap != null) {
+            String matchMode = Convert.toStr( searchMap.get( "matchMode" ), defaultMatchMode );
             // 订单id
             String id = Convert.toStr( searchMap.get( "id" ) );
             if (StrUtil.isNotEmpty( id )) {
@@ -387,12 +758,12 @@ public class OrderServiceImpl implements OrderService {
             // 物流单号
             String shippingCode = Convert.toStr( searchMap.get( "shippingCode" ) );
             if (StrUtil.isNotEmpty( shippingCode )) {
-                criteria.andLike( "shippingCode", "%" + shippingCode + "%" );
+                match( criteria, "shippingCode", shippingCode, matchMode );
             }
             // 用户名称
             String username = Convert.toStr( searchMap.get( "username" ) );
             if (StrUtil.isNotEmpty( username )) {
-                criteria.andLike( "username", "%" + username + "%" );
+                match( criteria, "username", username, matchMode );
             }
             // 买家留言
             String buyerMessage = Convert.toStr( searchMap.get( "buyerMessage" ) );
@@ -412,7 +783,7 @@ public class OrderServiceImpl implements OrderService {
             // 收货人手机
             String receiverMobile = Convert.toStr( searchMap.get( "receiverMobile" ) );
             if (StrUtil.isNotEmpty( receiverMobile )) {
-                criteria.andLike( "receiverMobile", "%" + receiverMobile + "%" );
+                match( criteria, "receiverMobile", receiverMobile, matchMode );
             }
             // 收货人地址
             String receiverAddress = Convert.toStr( searchMap.get( "receiverAddress" ) );
@@ -427,7 +798,7 @@ public class OrderServiceImpl implements OrderService {
             // 交易流水号
             String transactionId = Convert.toStr( searchMap.get( "transactionId" ) );
             if (StrUtil.isNotEmpty( transactionId )) {
-                criteria.andLike( "transactionId", "%" + transactionId + "%" );
+                match( criteria, "transactionId", transactionId, matchMode );
             }
             // 订单状态
             String orderStatus = Convert.toStr( searchMap.get( "orderStatus" ) );
@@ -477,4 +848,18 @@ public class OrderServiceImpl implements OrderService {
         }
         return example;
     }
-}
\ No newline at end of file
+
+    /**
+     * 按匹配方式添加索引字段条件，精确与前缀匹配可以使用索引
+     */
+    private void match(Example.Criteria criteria, String property, String value, String matchMode) {
+        if (MATCH_EXACT.equals( matchMode )) {
+            criteria.andEqualTo( property, value );
+        } else if (MATCH_PREFIX.equals( matchMode )) {
+            //转义通配符，避免前缀匹配退化为全表扫描
+            criteria.andLike( property, value.replace( "\\", "\\\\" ).replace( "%", "\\%" ).replace( "_", "\\_" ) + "%" );
+        } else {
+            criteria.andLike( property, "%" + value + "%" );
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.changgou.order.service.impl;
+
+import cn.hutool.core.date.DateField;
+import cn.hutool.core.date.DateUtil;
+import com.changgou.order.dao.OrderStatusHourlyMapper;
+import com.changgou.order.service.OrderStatService;
+import com.changgou.order.stat.OrderStatusStat;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @Author: Haotian
+ * @Date: 2020/3/13 10:30
+ * @Description: 订单状态统计服务实现,统计表按小时与状态预聚合,看板只需一次分组查询
+ */
+@Service
+public class OrderStatServiceImpl implements OrderStatService {
+    @Autowired
+    private OrderStatusHourlyMapper orderStatusHourlyMapper;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public void addDeltas(List<OrderStatusStat> deltas) {
+        //1.合并同一统计项的增量
+        Map<String, OrderStatusStat> merged = new LinkedHashMap<>( deltas.size() * 2 );
+        for (OrderStatusStat delta : deltas) {
+            String key = delta.getStatHour().getTime() + "," + delta.getOrderStatus() + "," + delta.getPayStatus() + "," + delta.getConsignStatus();
+            OrderStatusStat stat = merged.get( key );
+            if (stat == null) {
+                merged.put( key, delta );
+            } else {
+                stat.setNum( stat.getNum() + delta.getNum() );
+            }
+        }
+        List<OrderStatusStat> stats = new ArrayList<>( merged.size() );
+        for (OrderStatusStat stat : merged.values()) {
+            if (stat.getNum() != 0) {
+                stats.add( stat );
+            }
+        }
+        //2.一条语句累加到统计表
+        if (!stats.isEmpty()) {
+            orderStatusHourlyMapper.addBatch( stats );
+        }
+    }
+
+    @Override
+    public int[] countByStatus(Date startTime, Date endTime) {
+        int[] counts = new int[5];
+        for (OrderStatusStat stat : orderStatusHourlyMapper.sumByStatus( DateUtil.truncate( startTime, DateField.HOUR_OF_DAY ), endTime )) {
+            String orderStatus = stat.getOrderStatus();
+            String payStatus = stat.getPayStatus();
+            String consignStatus = stat.getConsignStatus();
+            int num = stat.getNum();
+            //待付款订单
+            if ("1".equals( payStatus ) && !"4".equals( orderStatus )) {
+                counts[0] += num;
+            }
+            //待发货订单
+            if ("0".equals( consignStatus ) && !"4".equals( orderStatus ) && "1".equals( payStatus )) {
+                counts[1] += num;
+            }
+            //已发货订单
+            if ("1".equals( consignStatus )) {
+                counts[2] += num;
+            }
+            //已完成订单
+            if ("1".equals( orderStatus )) {
+                counts[3] += num;
+            }
+            //已关闭订单
+            if ("4".equals( orderStatus )) {
+                counts[4] += num;
+            }
+        }
+        return counts;
+    }
+
+    @Override
+    public int rebuild(Date startTime, Date endTime) {
+        Date hour = DateUtil.truncate( startTime, DateField.HOUR_OF_DAY );
+        Date endHour = DateUtil.offsetHour( DateUtil.truncate( endTime, DateField.HOUR_OF_DAY ), 1 );
+        int count = 0;
+        //逐小时在单独的事务中重建,每次只按 update_time 索引扫描一小时的订单
+        //删除语句锁住该小时的统计行,同一小时的增量累加等待重建提交后再执行,不会被重建覆盖或与重建交错
+        while (hour.before( endHour )) {
+            Date startHour = hour;
+            Date nextHour = DateUtil.offsetHour( hour, 1 );
+            Integer rebuilt = transactionTemplate.execute( status -> {
+                orderStatusHourlyMapper.deleteRange( startHour, nextHour );
+                return orderStatusHourlyMapper.rebuildRange( startHour, nextHour );
+            } );
+            count += rebuilt == null ? 0 : rebuilt;
+            hour = nextHour;
+        }
+        return count;
+    }
+}
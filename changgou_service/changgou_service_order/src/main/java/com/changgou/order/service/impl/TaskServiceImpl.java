@@ -1,17 +1,30 @@
 package com.changgou.order.service.impl;
 
 import cn.hutool.core.bean.BeanUtil;
+import cn.hutool.core.util.IdUtil;
+import com.alibaba.fastjson.JSON;
 import com.changgou.order.dao.TaskHisMapper;
 import com.changgou.order.dao.TaskMapper;
 import com.changgou.order.pojo.Task;
 import com.changgou.order.pojo.TaskHis;
 import com.changgou.order.service.TaskService;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * @Author: Haotian
@@ -25,6 +38,33 @@ public class TaskServiceImpl implements TaskService {
     private TaskHisMapper taskHisMapper;
     @Autowired
     private TaskMapper taskMapper;
+    @Autowired
+    private RabbitTemplate rabbitTemplate;
+    /**
+     * 领取任务的租约时间(毫秒)，超过后未处理完的任务可被其他实例重新领取
+     */
+    @Value("${order.task.lease-timeout:60000}")
+    private long leaseTimeout;
+    /**
+     * 等待 mq 确认的超时时间(毫秒)
+     */
+    @Value("${order.task.confirm-timeout:5000}")
+    private long confirmTimeout;
+    /**
+     * 发送失败后的重试间隔(毫秒)
+     */
+    @Value("${order.task.failure-delay:10000}")
+    private long failureDelay;
+    /**
+     * 发送成功后首次等待用户服务回执的秒数，之后每次翻倍
+     */
+    @Value("${order.task.resend-delay:60}")
+    private long resendDelay;
+    /**
+     * 等待用户服务回执的最长秒数
+     */
+    @Value("${order.task.resend-max-delay:3600}")
+    private long resendMaxDelay;
 
     @Override
     @Transactional(rollbackFor = Exception.class)
@@ -45,4 +85,61 @@ public class TaskServiceImpl implements TaskService {
         taskMapper.deleteByPrimaryKey( task );
         log.info( "订单服务，完成添加历史任务，删除原有任务" );
     }
+
+    @Override
+    public int[] relayTasks(int batchSize) {
+        //1.领取一批到期任务
+        String claimToken = IdUtil.fastSimpleUUID();
+        Date now = new Date();
+        int claimed = taskMapper.claimTasks( claimToken, now, new Date( now.getTime() + leaseTimeout ), batchSize );
+        if (claimed == 0) {
+            return new int[]{0, 0};
+        }
+        List<Task> tasks = taskMapper.findClaimedTasks( claimToken );
+        //2.全部发送后统一等待 mq 确认，发送异常时本批剩余任务不再发送
+        Map<Long, CorrelationData> confirms = new HashMap<>( tasks.size() * 2 );
+        for (Task task : tasks) {
+            CorrelationData correlationData = new CorrelationData( String.valueOf( task.getId() ) );
+            try {
+                rabbitTemplate.convertAndSend( task.getMqExchange(), task.getMqRoutingkey(), JSON.toJSONString( task ), correlationData );
+            } catch (AmqpException e) {
+                log.warn( "任务 {} 发送失败: {}", task.getId(), e.getMessage() );
+                break;
+            }
+            confirms.put( task.getId(), correlationData );
+        }
+        List<Long> sent = new ArrayList<>( tasks.size() );
+        List<Long> failed = new ArrayList<>();
+        long deadline = System.currentTimeMillis() + confirmTimeout;
+        for (Task task : tasks) {
+            CorrelationData correlationData = confirms.get( task.getId() );
+            if (correlationData != null && isAck( correlationData, deadline )) {
+                sent.add( task.getId() );
+            } else {
+                failed.add( task.getId() );
+            }
+        }
+        //3.已确认的任务等待用户服务回执，超时后退避重发；未确认的任务稍后重新领取
+        Date finishTime = new Date();
+        if (!sent.isEmpty()) {
+            taskMapper.markSent( sent, claimToken, finishTime, resendDelay, resendMaxDelay );
+        }
+        if (!failed.isEmpty()) {
+            taskMapper.releaseTasks( failed, claimToken, new Date( finishTime.getTime() + failureDelay ) );
+            log.warn( "{} 个任务未得到 mq 确认，{} 毫秒后重试", failed.size(), failureDelay );
+        }
+        return new int[]{claimed, sent.size()};
+    }
+
+    private boolean isAck(CorrelationData correlationData, long deadline) {
+        try {
+            long timeout = Math.max( deadline - System.currentTimeMillis(), 0 );
+            return correlationData.getFuture().get( timeout, TimeUnit.MILLISECONDS ).isAck();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException | TimeoutException e) {
+            return false;
+        }
+    }
 }
@@ -0,0 +1,36 @@
+package com.changgou.order.stat;
+
+import lombok.Data;
+
+import java.io.Serializable;
+import java.util.Date;
+
+/**
+ * @Author: Haotian
+ * @Date: 2020/3/13 10:10
+ * @Description: 订单状态按小时统计项,订单按 update_time 所在小时与当前状态计数
+ */
+@Data
+public class OrderStatusStat implements Serializable {
+    private static final long serialVersionUID = -3620317441894025467L;
+    /**
+     * 统计小时
+     */
+    private Date statHour;
+    /**
+     * 订单状态
+     */
+    private String orderStatus;
+    /**
+     * 支付状态
+     */
+    private String payStatus;
+    /**
+     * 发货状态
+     */
+    private String consignStatus;
+    /**
+     * 订单数,增量消息中为增减量
+     */
+    private Integer num;
+}
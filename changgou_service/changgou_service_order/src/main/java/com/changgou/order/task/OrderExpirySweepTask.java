@@ -0,0 +1,57 @@
+package com.changgou.order.task;
+
+import com.changgou.order.expire.RedisOrderExpiryScheduler;
+import com.changgou.order.service.OrderService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * @Author: Haotian
+ * @Date: 2020/3/12 10:45
+ * @Description: 超时订单扫描任务,按批领取到期订单并批量关闭,处理失败的订单在租约到期后重试
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "order.expiry.scheduler", havingValue = "redis", matchIfMissing = true)
+public class OrderExpirySweepTask {
+    /**
+     * 每批领取的订单数
+     */
+    @Value("${order.expiry.batch-size:200}")
+    private int batchSize;
+    /**
+     * 每次扫描最多处理的批次数,避免单次扫描占用调度线程过久
+     */
+    @Value("${order.expiry.max-batches:50}")
+    private int maxBatches;
+    @Autowired
+    private RedisOrderExpiryScheduler redisOrderExpiryScheduler;
+    @Autowired
+    private OrderService orderService;
+
+    @Scheduled(fixedDelayString = "${order.expiry.sweep-interval:1000}")
+    public void sweep() {
+        for (int i = 0; i < maxBatches; i++) {
+            //1.领取一批到期订单
+            List<String> orderIds = redisOrderExpiryScheduler.claim( batchSize );
+            if (orderIds.isEmpty()) {
+                return;
+            }
+            //2.批量关闭,只删除已处理的订单
+            List<String> handled = orderService.closeOrders( orderIds );
+            redisOrderExpiryScheduler.complete( handled );
+            if (handled.size() < orderIds.size()) {
+                log.warn( "{} 个超时订单关闭失败，租约到期后重试", orderIds.size() - handled.size() );
+            }
+            if (orderIds.size() < batchSize) {
+                return;
+            }
+        }
+    }
+}
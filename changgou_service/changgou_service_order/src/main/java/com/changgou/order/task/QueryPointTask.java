@@ -1,42 +1,45 @@
 package com.changgou.order.task;
 
-import cn.hutool.core.util.ObjectUtil;
-import com.alibaba.fastjson.JSON;
-import com.changgou.order.config.RabbitMqConfig;
-import com.changgou.order.dao.TaskMapper;
-import com.changgou.order.pojo.Task;
+import com.changgou.order.service.TaskService;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
-import java.util.Date;
-import java.util.List;
-
 /**
  * @Author: Haotian
  * @Date: 2020/2/29 15:21
- * @Description: 定时扫描任务表数据
+ * @Description: 定时扫描任务表数据,按批领取到期任务发送到消息队列,多实例部署时同一任务在租约期内只由一个实例发送
  */
 @Component
 @Slf4j
 public class QueryPointTask {
+    /**
+     * 每批领取的任务数
+     */
+    @Value("${order.task.batch-size:100}")
+    private int batchSize;
+    /**
+     * 每次扫描最多处理的批次数
+     */
+    @Value("${order.task.max-batches:20}")
+    private int maxBatches;
     @Autowired
-    private TaskMapper taskMapper;
-    @Autowired
-    private RabbitTemplate rabbitTemplate;
+    private TaskService taskService;
 
-    @Scheduled(cron = "0/2 * * * * ?")
+    @Scheduled(fixedDelayString = "${order.task.relay-interval:2000}")
     public void queryTask() {
-        //1.获取最新任务数据
-        List<Task> taskList = taskMapper.findTaskLessThanCurrentTime( new Date() );
-        if (ObjectUtil.isNotEmpty( taskList )) {
-            for (Task task : taskList) {
-                //2.将任务数据发送到消息队列
-                rabbitTemplate.convertAndSend( RabbitMqConfig.EX_BUYING_ADD_POINT_USER, RabbitMqConfig.CG_BUYING_ADD_POINT_KEY, JSON.toJSONString( task ) );
-                log.info( "订单服务向添加积分队列发送了一条消息" );
+        for (int i = 0; i < maxBatches; i++) {
+            //1.领取一批到期任务并发送到消息队列
+            int[] relayed = taskService.relayTasks( batchSize );
+            if (relayed[0] > 0) {
+                log.info( "订单服务向添加积分队列发送了 {} 条消息", relayed[1] );
+            }
+            //2.任务已取完或 mq 发送失败时等待下次扫描
+            if (relayed[0] < batchSize || relayed[1] < relayed[0]) {
+                return;
             }
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,10 @@
+-- 超时订单领取脚本: 取出一批已到期的订单并顺延其到期时间作为租约,处理成功后删除,实例宕机时租约到期后重新领取
+-- KEYS[1] 订单超时zset
+-- ARGV[1] 当前时间  ARGV[2] 领取数量  ARGV[3] 租约到期时间
+-- 返回值: 领取到的订单号
+
+local orderIds = redis.call( 'zrangebyscore', KEYS[1], '-inf', ARGV[1], 'LIMIT', 0, ARGV[2] )
+for _, orderId in ipairs( orderIds ) do
+    redis.call( 'zadd', KEYS[1], ARGV[3], orderId )
+end
+return orderIds
@@ -2,30 +2,75 @@ package com.changgou.seckill.config;
 
 import cn.hutool.core.map.MapUtil;
 import cn.hutool.core.util.IdUtil;
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONObject;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.amqp.rabbit.connection.CorrelationData;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * @Author: Haotian
  * @Date: 2020/3/6 17:58
  * @Description: 消息确认机制保证消息可靠性
+ * 未确认的消息按发送序号保存在内存中,超时仍未确认的消息才备份到redis;
+ * 确认回调只修改内存,redis 删除与失败重发由定时任务批量处理
  */
+@Slf4j
 @Component
 public class ConfirmMessageSender implements RabbitTemplate.ConfirmCallback {
     /**
-     * 消息确认key前缀
+     * 消息确认备份key
      */
     private static final String MESSAGE_CONFIRM_KEY = "message_confirm_key";
+    /**
+     * 当前实例的消息标识前缀,避免不同实例或重启前后的序号冲突
+     */
+    private final String instanceId = IdUtil.fastSimpleUUID() + "-";
+    private final AtomicLong sequence = new AtomicLong();
+    /**
+     * 未确认的消息 发送序号: 消息
+     */
+    private final Map<Long, PendingMessage> outstanding = new ConcurrentHashMap<>();
+    /**
+     * 已确认的消息标识,无论确认时是否已备份都等待批量删除redis中的备份
+     */
+    private final Queue<String> confirmedIds = new ConcurrentLinkedQueue<>();
+    /**
+     * 已备份到redis但发送失败的消息标识,等待重发
+     */
+    private final Queue<String> spilledNacks = new ConcurrentLinkedQueue<>();
+    /**
+     * 内存中发送失败的消息,等待重发
+     */
+    private final Queue<PendingMessage> nacked = new ConcurrentLinkedQueue<>();
+    /**
+     * 内存中最多保存的未确认消息数,超出后直接备份到redis
+     */
+    @Value("${seckill.confirm.max-outstanding:10000}")
+    private int maxOutstanding;
+    /**
+     * 超过该时间(毫秒)仍未确认的消息备份到redis
+     */
+    @Value("${seckill.confirm.spill-timeout:5000}")
+    private long spillTimeout;
 
-    @Autowired
     private RabbitTemplate rabbitTemplate;
     @Autowired
-    private RedisTemplate redisTemplate;
+    private StringRedisTemplate stringRedisTemplate;
 
     public ConfirmMessageSender(RabbitTemplate rabbitTemplate) {
         this.rabbitTemplate = rabbitTemplate;
@@ -33,21 +78,24 @@ public class ConfirmMessageSender implements RabbitTemplate.ConfirmCallback {
     }
 
     /**
-     * 接受消息返回通知
+     * 接受消息返回通知,在 mq 连接线程中执行,不访问redis
      */
     @Override
     public void confirm(CorrelationData correlationData, boolean ack, String cause) {
         String correlationDataId = correlationData.getId();
-        if (ack) {
-            //发送成功，删除redis中的数据备份
-            redisTemplate.delete( MESSAGE_CONFIRM_KEY + correlationDataId );
-        } else {
-            //发送失败，再次发送消息
-            Map<String, String> map = redisTemplate.opsForHash().entries( MESSAGE_CONFIRM_KEY + correlationDataId );
-            String exchange = map.get( "exchange" );
-            String routingKey = map.get( "routingKey" );
-            String message = map.get( "message" );
-            rabbitTemplate.convertAndSend( exchange, routingKey, message );
+        PendingMessage pending = outstanding.remove( sequenceOf( correlationDataId ) );
+        //发送成功或从内存重发时,备份可能在确认前后写入redis,一律等待批量删除
+        if (ack || pending != null) {
+            confirmedIds.offer( correlationDataId );
+        }
+        if (!ack) {
+            //发送失败，等待再次发送消息
+            log.warn( "消息发送失败,等待重发: {}, 原因: {}", correlationDataId, cause );
+            if (pending == null) {
+                spilledNacks.offer( correlationDataId );
+            } else {
+                nacked.offer( pending );
+            }
         }
     }
 
@@ -59,16 +107,97 @@ public class ConfirmMessageSender implements RabbitTemplate.ConfirmCallback {
      * @param message    消息内容
      */
     public void sendMessage(String exchange, String routingKey, String message) {
-        //设置消息的唯一标识并存入redis中
-        CorrelationData correlationData = new CorrelationData( IdUtil.randomUUID() );
-        String correlationDataId = correlationData.getId();
-        //将本次发送消息的相关元数据保存到redis中
-        Map<Object, Object> map = MapUtil.builder()
-                .put( "exchange", exchange )
-                .put( "routingKey", routingKey )
-                .put( "message", message ).build();
-        redisTemplate.opsForHash().putAll( MESSAGE_CONFIRM_KEY + correlationDataId, map );
-        //向消息队列发送消息
-        rabbitTemplate.convertAndSend( exchange, routingKey, message, correlationData );
+        //1.设置消息的唯一标识
+        long seq = sequence.incrementAndGet();
+        String correlationDataId = instanceId + seq;
+        PendingMessage pending = new PendingMessage( exchange, routingKey, message );
+        //2.保存本次发送消息的相关元数据,未确认消息过多时直接备份到redis
+        if (outstanding.size() < maxOutstanding) {
+            outstanding.put( seq, pending );
+        } else {
+            stringRedisTemplate.opsForHash().put( MESSAGE_CONFIRM_KEY, correlationDataId, pending.toJson() );
+        }
+        //3.向消息队列发送消息
+        rabbitTemplate.convertAndSend( exchange, routingKey, message, new CorrelationData( correlationDataId ) );
+    }
+
+    /**
+     * 批量处理确认结果: 备份超时消息,删除已确认的备份,重发失败消息
+     */
+    @Scheduled(fixedDelayString = "${seckill.confirm.sweep-interval:500}")
+    public void sweep() {
+        List<Object> confirmed = new ArrayList<>();
+        //1.超时未确认的消息一次写入redis后移出内存,写入期间已确认的消息由第2步删除备份
+        long deadline = System.currentTimeMillis() - spillTimeout;
+        Map<Long, PendingMessage> expired = new HashMap<>();
+        outstanding.forEach( (seq, pending) -> {
+            if (pending.createTime <= deadline) {
+                expired.put( seq, pending );
+            }
+        } );
+        if (!expired.isEmpty()) {
+            Map<String, String> backup = new HashMap<>( expired.size() * 2 );
+            expired.forEach( (seq, pending) -> backup.put( instanceId + seq, pending.toJson() ) );
+            stringRedisTemplate.opsForHash().putAll( MESSAGE_CONFIRM_KEY, backup );
+            expired.forEach( outstanding::remove );
+            log.warn( "{} 条消息超时未确认,已备份到redis", expired.size() );
+        }
+        //2.批量删除已确认消息的备份
+        drain( confirmedIds, confirmed );
+        if (!confirmed.isEmpty()) {
+            stringRedisTemplate.opsForHash().delete( MESSAGE_CONFIRM_KEY, confirmed.toArray() );
+        }
+        //3.重发内存中发送失败的消息
+        PendingMessage pending;
+        while ((pending = nacked.poll()) != null) {
+            sendMessage( pending.exchange, pending.routingKey, pending.message );
+        }
+        //4.从redis中取出发送失败的备份消息重发
+        List<Object> failed = new ArrayList<>();
+        drain( spilledNacks, failed );
+        if (!failed.isEmpty()) {
+            List<Object> backups = stringRedisTemplate.opsForHash().multiGet( MESSAGE_CONFIRM_KEY, failed );
+            stringRedisTemplate.opsForHash().delete( MESSAGE_CONFIRM_KEY, failed.toArray() );
+            for (Object backup : backups) {
+                if (backup != null) {
+                    JSONObject json = JSON.parseObject( backup.toString() );
+                    sendMessage( json.getString( "exchange" ), json.getString( "routingKey" ), json.getString( "message" ) );
+                }
+            }
+        }
+    }
+
+    private void drain(Queue<String> queue, List<Object> target) {
+        String correlationDataId;
+        while ((correlationDataId = queue.poll()) != null) {
+            target.add( correlationDataId );
+        }
+    }
+
+    private long sequenceOf(String correlationDataId) {
+        return Long.parseLong( correlationDataId.substring( instanceId.length() ) );
+    }
+
+    /**
+     * 未确认的消息
+     */
+    private static class PendingMessage {
+        private final String exchange;
+        private final String routingKey;
+        private final String message;
+        private final long createTime = System.currentTimeMillis();
+
+        private PendingMessage(String exchange, String routingKey, String message) {
+            this.exchange = exchange;
+            this.routingKey = routingKey;
+            this.message = message;
+        }
+
+        private String toJson() {
+            return JSON.toJSONString( MapUtil.builder()
+                    .put( "exchange", exchange )
+                    .put( "routingKey", routingKey )
+                    .put( "message", message ).build() );
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,37 @@
+package com.changgou.seckill.config;
+
+import com.changgou.seckill.constant.SecKillOrderStatus;
+import com.changgou.seckill.listener.OrderStatusListener;
+import com.changgou.seckill.stock.SoldOutListener;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.util.Arrays;
+
+/**
+ * @Author: Haotian
+ * @Date: 2020/3/8 14:50
+ * @Description: redis 发布订阅配置类
+ */
+@Configuration
+public class RedisListenerConfig {
+
+    /**
+     * 订阅售罄、库存回补与订单状态广播频道
+     */
+    @Bean
+    public RedisMessageListenerContainer redisMessageListenerContainer(RedisConnectionFactory redisConnectionFactory,
+                                                                       SoldOutListener soldOutListener,
+                                                                       OrderStatusListener orderStatusListener) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory( redisConnectionFactory );
+        container.addMessageListener( soldOutListener, Arrays.asList(
+                new ChannelTopic( SoldOutListener.SEC_KILL_SOLD_OUT_CHANNEL ),
+                new ChannelTopic( SoldOutListener.SEC_KILL_RESTOCK_CHANNEL ) ) );
+        container.addMessageListener( orderStatusListener, new ChannelTopic( SecKillOrderStatus.SEC_KILL_ORDER_STATUS_CHANNEL ) );
+        return container;
+    }
+}
@@ -4,8 +4,11 @@ import com.changgou.common.pojo.Result;
 import com.changgou.common.pojo.StatusCode;
 import com.changgou.seckill.pojo.SeckillGoods;
 import com.changgou.seckill.service.SecKillGoodsService;
+import com.changgou.seckill.service.SecKillStockReconcileService;
+import com.changgou.seckill.stock.SecKillReconcileReport;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
@@ -22,6 +25,8 @@ import java.util.List;
 public class SecKillGoodsController {
     @Autowired
     private SecKillGoodsService secKillGoodsService;
+    @Autowired
+    private SecKillStockReconcileService secKillStockReconcileService;
 
     /**
      * 查询当前时间段商品秒杀列表
@@ -38,4 +43,33 @@ public class SecKillGoodsController {
                 .data( list )
                 .message( "查询当前时间段秒杀商品信息成功" ).build();
     }
+
+    /**
+     * 查询最近一次秒杀库存核对结果
+     *
+     * @return 核对结果
+     */
+    @GetMapping("/reconcile")
+    public Result<SecKillReconcileReport> lastReconcileReport() {
+        return Result.<SecKillReconcileReport>builder()
+                .flag( true )
+                .code( StatusCode.OK )
+                .data( secKillStockReconcileService.lastReport() )
+                .message( "查询秒杀库存核对结果成功" ).build();
+    }
+
+    /**
+     * 立即执行一次秒杀库存核对
+     *
+     * @return 核对结果
+     */
+    @PostMapping("/reconcile")
+    public Result<SecKillReconcileReport> reconcile() {
+        SecKillReconcileReport report = secKillStockReconcileService.reconcile();
+        return Result.<SecKillReconcileReport>builder()
+                .flag( report != null )
+                .code( report != null ? StatusCode.OK : StatusCode.ERROR )
+                .data( report )
+                .message( report != null ? "秒杀库存核对完成" : "其他节点正在核对,请稍后重试" ).build();
+    }
 }
\ No newline at end of file
@@ -3,12 +3,15 @@ package com.changgou.seckill.controller;
 import com.changgou.common.pojo.Result;
 import com.changgou.common.pojo.StatusCode;
 import com.changgou.seckill.config.TokenDecode;
+import com.changgou.seckill.constant.SecKillOrderStatus;
+import com.changgou.seckill.listener.OrderStatusListener;
 import com.changgou.seckill.service.SecKillOrderService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
 
 /**
  * @Author: Haotian
@@ -18,10 +21,17 @@ import org.springframework.web.bind.annotation.RestController;
 @RestController
 @RequestMapping("/seckillorder")
 public class SecKillOrderController {
+    /**
+     * 长轮询最长等待时间,单位毫秒
+     */
+    private static final long MAX_POLL_TIMEOUT = 3000;
+
     @Autowired
     private TokenDecode tokenDecode;
     @Autowired
     private SecKillOrderService secKillOrderService;
+    @Autowired
+    private OrderStatusListener orderStatusListener;
 
     /**
      * 秒杀下单
@@ -51,4 +61,55 @@ public class SecKillOrderController {
                     .message( "下单失败" ).build();
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * 查询秒杀订单排队状态,订单排队中时最多等待timeout毫秒,状态变更后立即返回
+     *
+     * @param id      商品id
+     * @param timeout 长轮询等待时间,单位毫秒,0表示立即返回
+     * @return 订单状态 queued:排队中 success:下单成功 failed:下单失败
+     */
+    @GetMapping("/status")
+    public DeferredResult<Result<String>> status(@RequestParam("id") Long id,
+                                                 @RequestParam(value = "timeout", defaultValue = "0") long timeout) {
+        String username = tokenDecode.getUserInfo().get( "username" );
+        long pollTimeout = Math.min( Math.max( timeout, 0 ), MAX_POLL_TIMEOUT );
+        DeferredResult<Result<String>> deferredResult = new DeferredResult<>( pollTimeout,
+                () -> statusResult( secKillOrderService.getStatus( id, username ) ) );
+        String status = secKillOrderService.getStatus( id, username );
+        if (pollTimeout == 0 || !SecKillOrderStatus.QUEUED.equals( status )) {
+            deferredResult.setResult( statusResult( status ) );
+            return deferredResult;
+        }
+        //排队中,等待消息确认服务广播状态变更
+        Runnable callback = () -> deferredResult.setResult( statusResult( secKillOrderService.getStatus( id, username ) ) );
+        orderStatusListener.await( id, username, callback );
+        deferredResult.onCompletion( () -> orderStatusListener.remove( id, username, callback ) );
+        //注册回调前状态可能已经变更
+        status = secKillOrderService.getStatus( id, username );
+        if (!SecKillOrderStatus.QUEUED.equals( status )) {
+            deferredResult.setResult( statusResult( status ) );
+        }
+        return deferredResult;
+    }
+
+    /**
+     * 构建订单状态返回结果
+     *
+     * @param status 订单状态
+     * @return 返回结果
+     */
+    private Result<String> statusResult(String status) {
+        if (status == null) {
+            return Result.<String>builder()
+                    .flag( false )
+                    .code( StatusCode.ERROR )
+                    .message( "秒杀订单不存在" ).build();
+        }
+        return Result.<String>builder()
+                .flag( true )
+                .code( StatusCode.OK )
+                .data( status )
+                .message( "查询秒杀订单状态成功" ).build();
+    }
+}
@@ -1,13 +1,41 @@
 package com.changgou.seckill.dao;
 
 import com.changgou.seckill.pojo.SeckillGoods;
+import com.changgou.seckill.stock.SecKillStockLedger;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
 import tk.mybatis.mapper.common.Mapper;
 
+import java.util.Collection;
+import java.util.List;
+
 /**
  * @Author: Haotian
  * @Date: 2020/3/5 16:43
  * @Description: 秒杀商品信息通用接口
  **/
 public interface SeckillGoodsMapper extends Mapper<SeckillGoods> {
+    /**
+     * 批量查询秒杀商品库存与已创建订单数,订单数按 seckill_id 索引一次分组统计
+     *
+     * @param ids 秒杀商品id
+     * @return 库存台账
+     */
+    @Select("<script>select g.id, ifnull(g.stock_count,0) as stockCount, ifnull(o.num,0) as orderCount " +
+            "from tb_seckill_goods g left join (select seckill_id, count(*) as num from tb_seckill_order where seckill_id in " +
+            "<foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach>" +
+            " group by seckill_id) o on o.seckill_id=g.id where g.id in " +
+            "<foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach></script>")
+    List<SecKillStockLedger> findStockLedgers(@Param("ids") Collection<Long> ids);
 
-}
\ No newline at end of file
+    /**
+     * 调整秒杀商品库存,库存不会被调整为负数
+     *
+     * @param id    秒杀商品id
+     * @param delta 调整数量
+     * @return 影响行数
+     */
+    @Update("update tb_seckill_goods set stock_count=stock_count+#{delta} where id=#{id} and stock_count+#{delta}>=0")
+    int adjustStockCount(@Param("id") Long id, @Param("delta") long delta);
+}
@@ -5,6 +5,9 @@ import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
 import tk.mybatis.mapper.common.Mapper;
 
+import java.util.Date;
+import java.util.List;
+
 /**
  * @Author: Haotian
  * @Date: 2020/3/5 16:43
@@ -12,12 +15,16 @@ import tk.mybatis.mapper.common.Mapper;
  **/
 public interface SeckillOrderMapper extends Mapper<SeckillOrder> {
     /**
-     * 查询秒杀订单
+     * 按订单id游标分页查询未结束秒杀商品的订单,用于重建购买登记表
      *
-     * @param username 用户名
-     * @param id       商品id
-     * @return 秒杀订单
+     * @param currentTime 当前时间
+     * @param lastId      上一页最后一条订单id,查询第一页时传0
+     * @param size        每页条数
+     * @return 秒杀订单(仅包含订单id、商品id与用户),按订单id升序
      */
-    @Select("select * from tb_seckill_order where user_id=#{username} and seckill_id=#{id}")
-    SeckillOrder getOrderInfoByUserNameAndGoodsId(@Param("username") String username, @Param("id") Long id);
+    @Select("select o.id, o.seckill_id as seckillId, o.user_id as userId from tb_seckill_order o " +
+            "join tb_seckill_goods g on o.seckill_id=g.id where g.end_time>#{currentTime} and o.id>#{lastId} " +
+            "order by o.id limit #{size}")
+    List<SeckillOrder> findOrdersOfActiveGoods(@Param("currentTime") Date currentTime, @Param("lastId") Long lastId,
+                                               @Param("size") int size);
 }
\ No newline at end of file
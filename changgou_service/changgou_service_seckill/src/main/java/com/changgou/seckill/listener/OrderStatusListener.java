@@ -0,0 +1,56 @@
+package com.changgou.seckill.listener;
+
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * @Author: Haotian
+ * @Date: 2020/3/9 15:40
+ * @Description: 监听秒杀订单状态广播,唤醒正在长轮询该订单状态的请求
+ */
+@Component
+public class OrderStatusListener implements MessageListener {
+    /**
+     * 等待中的长轮询请求 key=商品id:用户名
+     */
+    private final Map<String, Set<Runnable>> waiting = new ConcurrentHashMap<>();
+
+    /**
+     * 注册订单状态变更回调
+     *
+     * @param id       商品id
+     * @param username 用户名
+     * @param callback 状态变更回调
+     */
+    public void await(Long id, String username, Runnable callback) {
+        waiting.computeIfAbsent( id + ":" + username, key -> ConcurrentHashMap.newKeySet() ).add( callback );
+    }
+
+    /**
+     * 移除订单状态变更回调
+     *
+     * @param id       商品id
+     * @param username 用户名
+     * @param callback 状态变更回调
+     */
+    public void remove(Long id, String username, Runnable callback) {
+        waiting.computeIfPresent( id + ":" + username, (key, callbacks) -> {
+            callbacks.remove( callback );
+            return callbacks.isEmpty() ? null : callbacks;
+        } );
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        Set<Runnable> callbacks = waiting.remove( new String( message.getBody(), StandardCharsets.UTF_8 ) );
+        if (callbacks != null) {
+            callbacks.forEach( Runnable::run );
+        }
+    }
+}
@@ -15,4 +15,13 @@ public interface SecKillOrderService {
      * @return 是否秒杀成功
      */
     boolean add(Long id, String time, String username);
+
+    /**
+     * 查询秒杀订单排队状态
+     *
+     * @param id       商品id
+     * @param username 用户名
+     * @return 订单状态 queued:排队中 success:下单成功 failed:下单失败 null:未下单
+     */
+    String getStatus(Long id, String username);
 }
\ No newline at end of file
@@ -0,0 +1,25 @@
+package com.changgou.seckill.service;
+
+import com.changgou.seckill.stock.SecKillReconcileReport;
+
+/**
+ * @Author: Haotian
+ * @Date: 2020/3/11 16:25
+ * @Description: 秒杀库存核对服务
+ */
+public interface SecKillStockReconcileService {
+    /**
+     * 核对已加载时间段内商品的redis库存与数据库库存,按配置的策略修复连续两次核对结果相同的偏差
+     * 多实例中同一时刻只有一个实例核对
+     *
+     * @return 核对结果,其他实例正在核对时为null
+     */
+    SecKillReconcileReport reconcile();
+
+    /**
+     * 获取最近一次核对结果
+     *
+     * @return 核对结果,尚未核对时为null
+     */
+    SecKillReconcileReport lastReport();
+}
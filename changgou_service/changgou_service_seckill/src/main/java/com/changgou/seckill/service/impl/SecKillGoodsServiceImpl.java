@@ -2,12 +2,20 @@ package com.changgou.seckill.service.impl;
 
 import com.changgou.seckill.pojo.SeckillGoods;
 import com.changgou.seckill.service.SecKillGoodsService;
+import com.changgou.seckill.stock.SecKillStockReserver;
+import lombok.AllArgsConstructor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * @Author: Haotian
@@ -21,21 +29,87 @@ public class SecKillGoodsServiceImpl implements SecKillGoodsService {
      */
     private static final String SEC_KILL_GOODS_KEY = "sec_kill_goods_key";
     /**
-     * redis 中秒杀商品库存 key 前缀
+     * 本地最多缓存的时间段数,超出后清理已过期的快照
      */
-    private static final String SEC_KILL_GOODS_STOCK_COUNT_KEY = "sec_kill_goods_stock_count_key";
+    private static final int MAX_SNAPSHOTS = 16;
 
+    /**
+     * 秒杀商品列表快照 key=时间段
+     */
+    private final Map<String, Snapshot> snapshots = new ConcurrentHashMap<>();
+    /**
+     * 正在刷新的秒杀商品列表 key=时间段,同一时间段同时只有一个请求访问redis
+     */
+    private final Map<String, CompletableFuture<List<SeckillGoods>>> loading = new ConcurrentHashMap<>();
+    /**
+     * 秒杀商品列表快照有效期,单位毫秒
+     */
+    @Value("${seckill.goods.list-cache-ttl:200}")
+    private long listCacheTtl;
     @Autowired
     private RedisTemplate redisTemplate;
 
     @Override
     public List<SeckillGoods> list(String time) {
+        Snapshot snapshot = snapshots.get( time );
+        if (snapshot != null && snapshot.expireAt > System.currentTimeMillis()) {
+            return snapshot.goods;
+        }
+        CompletableFuture<List<SeckillGoods>> future = new CompletableFuture<>();
+        CompletableFuture<List<SeckillGoods>> running = loading.putIfAbsent( time, future );
+        if (running != null) {
+            //其他请求正在刷新,有旧快照时直接返回旧快照,否则等待刷新结果
+            return snapshot != null ? snapshot.goods : running.join();
+        }
+        try {
+            List<SeckillGoods> goods = Collections.unmodifiableList( load( time ) );
+            if (snapshots.size() >= MAX_SNAPSHOTS) {
+                long now = System.currentTimeMillis();
+                snapshots.values().removeIf( expired -> expired.expireAt <= now );
+            }
+            snapshots.put( time, new Snapshot( goods, System.currentTimeMillis() + listCacheTtl ) );
+            future.complete( goods );
+            return goods;
+        } catch (RuntimeException e) {
+            future.completeExceptionally( e );
+            throw e;
+        } finally {
+            loading.remove( time, future );
+        }
+    }
+
+    /**
+     * 从redis加载秒杀商品列表,库存通过一次批量查询获取
+     *
+     * @param time 当前时间段
+     * @return 商品列表数据
+     */
+    private List<SeckillGoods> load(String time) {
         List<SeckillGoods> list = redisTemplate.boundHashOps( SEC_KILL_GOODS_KEY + time ).values();
-        //更新库存数据来源
-        for (SeckillGoods seckillGoods : Objects.requireNonNull( list )) {
-            String stockCount = (String) redisTemplate.opsForValue().get( SEC_KILL_GOODS_STOCK_COUNT_KEY + seckillGoods.getId() );
-            seckillGoods.setStockCount( Integer.parseInt( Objects.requireNonNull( stockCount ) ) );
+        if (Objects.requireNonNull( list ).isEmpty()) {
+            return list;
+        }
+        //1.汇总所有商品的库存key
+        List<String> stockKeys = new ArrayList<>( list.size() );
+        for (SeckillGoods seckillGoods : list) {
+            stockKeys.add( SecKillStockReserver.SEC_KILL_GOODS_STOCK_COUNT_KEY + seckillGoods.getId() );
+        }
+        //2.一次批量查询全部库存
+        List<Object> stockCounts = Objects.requireNonNull( redisTemplate.opsForValue().multiGet( stockKeys ) );
+        //3.更新库存数据来源
+        for (int i = 0; i < list.size(); i++) {
+            Object stockCount = stockCounts.get( i );
+            list.get( i ).setStockCount( stockCount == null ? 0 : Integer.parseInt( (String) stockCount ) );
         }
         return list;
     }
-}
\ No newline at end of file
+
+    /**
+     * 秒杀商品列表快照
+     */
+    @AllArgsConstructor
+    private static class Snapshot {
+        private final List<SeckillGoods> goods;
+        private final long expireAt;
+    }
+}
@@ -0,0 +1,208 @@
+package com.changgou.seckill.service.impl;
+
+import cn.hutool.core.collection.CollUtil;
+import cn.hutool.core.util.IdUtil;
+import com.changgou.common.util.SecKillSlotCalendar;
+import com.changgou.seckill.dao.SeckillGoodsMapper;
+import com.changgou.seckill.service.SecKillStockReconcileService;
+import com.changgou.seckill.stock.ReconcilePolicy;
+import com.changgou.seckill.stock.SecKillReconcileReport;
+import com.changgou.seckill.stock.SecKillStockLedger;
+import com.changgou.seckill.stock.SecKillStockReserver;
+import com.changgou.seckill.stock.SoldOutListener;
+import com.changgou.seckill.task.SecKillGoodsPushTask;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.scripting.support.ResourceScriptSource;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * @Author: Haotian
+ * @Date: 2020/3/11 16:30
+ * @Description: 秒杀库存核对服务实现,按时间段分批核对,每批一次redis脚本调用与一次数据库查询
+ * 核对在redis锁内执行,上一次核对的偏差保存在redis中,多实例部署时偏差只修复一次
+ */
+@Slf4j
+@Service
+public class SecKillStockReconcileServiceImpl implements SecKillStockReconcileService {
+    /**
+     * redis 中秒杀商品 key 前缀
+     */
+    private static final String SEC_KILL_GOODS_KEY = "sec_kill_goods_key";
+    /**
+     * 核对锁key
+     */
+    private static final String RECONCILE_LOCK_KEY = "sec_kill_reconcile_lock";
+    /**
+     * 上一次核对发现的偏差 商品id: 偏差,连续两次偏差相同才修复,避免修正核对期间正在变化的库存
+     */
+    private static final String RECONCILE_DRIFT_KEY = "sec_kill_reconcile_drift";
+
+    private final DefaultRedisScript<List> snapshotScript;
+    private final DefaultRedisScript<Long> adjustScript;
+    private final DefaultRedisScript<Long> unlockScript;
+    private final String instanceId = IdUtil.fastSimpleUUID();
+    private volatile SecKillReconcileReport lastReport;
+    @Value("${seckill.reconcile.policy:REPORT}")
+    private ReconcilePolicy policy;
+    @Value("${seckill.reconcile.batch-size:200}")
+    private int batchSize;
+    /**
+     * 核对锁过期时间,单位毫秒
+     */
+    @Value("${seckill.reconcile.lock-timeout:30000}")
+    private long lockTimeout;
+    @Autowired
+    private RedisTemplate redisTemplate;
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+    @Autowired
+    private SeckillGoodsMapper seckillGoodsMapper;
+
+    public SecKillStockReconcileServiceImpl() {
+        snapshotScript = new DefaultRedisScript<>();
+        snapshotScript.setScriptSource( new ResourceScriptSource( new ClassPathResource( "lua/sec_kill_stock_snapshot.lua" ) ) );
+        snapshotScript.setResultType( List.class );
+        adjustScript = new DefaultRedisScript<>();
+        adjustScript.setScriptSource( new ResourceScriptSource( new ClassPathResource( "lua/sec_kill_stock_adjust.lua" ) ) );
+        adjustScript.setResultType( Long.class );
+        unlockScript = new DefaultRedisScript<>();
+        unlockScript.setScriptSource( new ResourceScriptSource( new ClassPathResource( "lua/sec_kill_unlock.lua" ) ) );
+        unlockScript.setResultType( Long.class );
+    }
+
+    @Override
+    public SecKillReconcileReport reconcile() {
+        Boolean locked = stringRedisTemplate.opsForValue().setIfAbsent( RECONCILE_LOCK_KEY, instanceId, lockTimeout, TimeUnit.MILLISECONDS );
+        if (!Boolean.TRUE.equals( locked )) {
+            return null;
+        }
+        try {
+            return reconcileLocked();
+        } finally {
+            //比较持有者与删除在同一脚本中执行,锁已过期时不会删除其他实例的锁
+            stringRedisTemplate.execute( unlockScript, Collections.singletonList( RECONCILE_LOCK_KEY ), instanceId );
+        }
+    }
+
+    @Override
+    public SecKillReconcileReport lastReport() {
+        return lastReport;
+    }
+
+    /**
+     * 持有核对锁时核对并修复库存
+     *
+     * @return 核对结果
+     */
+    private SecKillReconcileReport reconcileLocked() {
+        SecKillReconcileReport report = new SecKillReconcileReport();
+        report.setPolicy( policy );
+        //1.分批核对已加载时间段内的商品
+        for (SecKillSlotCalendar.Slot slot : CollUtil.sub( SecKillSlotCalendar.slots(), 0, SecKillGoodsPushTask.LOAD_SLOT_COUNT )) {
+            Set<Object> keys = redisTemplate.boundHashOps( SEC_KILL_GOODS_KEY + slot.getKey() ).keys();
+            if (CollUtil.isEmpty( keys )) {
+                continue;
+            }
+            List<Long> ids = keys.stream().map( key -> (Long) key ).collect( Collectors.toList() );
+            for (List<Long> batch : CollUtil.split( ids, batchSize )) {
+                reconcileBatch( batch, report );
+            }
+        }
+        //2.修复连续两次核对结果相同的偏差,其余偏差留待下次核对确认
+        Map<Long, Long> drifts = report.getDrifts();
+        Map<Long, Long> pendingDrifts = new HashMap<>();
+        stringRedisTemplate.<String, String>opsForHash().entries( RECONCILE_DRIFT_KEY )
+                .forEach( (id, drift) -> pendingDrifts.put( Long.valueOf( id ), Long.valueOf( drift ) ) );
+        Map<Long, Long> pending = new HashMap<>( drifts );
+        if (policy != ReconcilePolicy.REPORT) {
+            for (Map.Entry<Long, Long> entry : drifts.entrySet()) {
+                if (entry.getValue().equals( pendingDrifts.get( entry.getKey() ) ) && repair( entry.getKey(), entry.getValue() )) {
+                    report.setRepaired( report.getRepaired() + 1 );
+                    pending.remove( entry.getKey() );
+                }
+            }
+        }
+        stringRedisTemplate.delete( RECONCILE_DRIFT_KEY );
+        if (!pending.isEmpty()) {
+            Map<String, String> entries = new HashMap<>( pending.size() * 2 );
+            pending.forEach( (id, drift) -> entries.put( id.toString(), drift.toString() ) );
+            stringRedisTemplate.opsForHash().putAll( RECONCILE_DRIFT_KEY, entries );
+        }
+        report.setDrifted( drifts.size() );
+        if (report.getDrifted() > 0) {
+            log.warn( "秒杀库存核对: 核对商品 {} 个, 偏差商品 {} 个, 偏差合计 {}, 修复 {} 个, 偏差明细 {}",
+                    report.getChecked(), report.getDrifted(), report.getTotalDrift(), report.getRepaired(), drifts );
+        }
+        lastReport = report;
+        return report;
+    }
+
+    /**
+     * 核对一批商品,redis 一侧通过脚本原子读取,数据库一侧一次查询
+     *
+     * @param batch  商品id
+     * @param report 核对结果
+     */
+    @SuppressWarnings("unchecked")
+    private void reconcileBatch(List<Long> batch, SecKillReconcileReport report) {
+        //1.读取redis库存与预占记录数
+        List<String> keys = new ArrayList<>( batch.size() * 2 );
+        for (Long id : batch) {
+            keys.add( SecKillStockReserver.SEC_KILL_RESERVATION_KEY + id );
+            keys.add( SecKillStockReserver.SEC_KILL_GOODS_STOCK_COUNT_KEY + id );
+        }
+        List<Long> snapshot = (List<Long>) redisTemplate.execute( snapshotScript, keys );
+        //2.读取数据库库存与订单数
+        Map<Long, SecKillStockLedger> ledgers = seckillGoodsMapper.findStockLedgers( batch ).stream()
+                .collect( Collectors.toMap( SecKillStockLedger::getId, Function.identity() ) );
+        //3.计算偏差,库存未加载的商品不参与核对
+        for (int i = 0; i < batch.size(); i++) {
+            Long id = batch.get( i );
+            SecKillStockLedger ledger = ledgers.get( id );
+            if (ledger == null || snapshot.get( i * 3 ) == 0) {
+                continue;
+            }
+            report.setChecked( report.getChecked() + 1 );
+            long drift = ledger.getStockCount() + ledger.getOrderCount() - snapshot.get( i * 3 + 1 ) - snapshot.get( i * 3 + 2 );
+            if (drift != 0) {
+                report.getDrifts().put( id, drift );
+                report.setTotalDrift( report.getTotalDrift() + Math.abs( drift ) );
+            }
+        }
+    }
+
+    /**
+     * 按修复策略修复库存偏差
+     *
+     * @param id    商品id
+     * @param drift 偏差
+     * @return 是否修复
+     */
+    private boolean repair(Long id, long drift) {
+        if (policy == ReconcilePolicy.REDIS) {
+            //redis库存补足偏差
+            Long applied = (Long) redisTemplate.execute( adjustScript,
+                    Collections.singletonList( SecKillStockReserver.SEC_KILL_GOODS_STOCK_COUNT_KEY + id ),
+                    drift, SoldOutListener.SEC_KILL_RESTOCK_CHANNEL, id );
+            return applied != null && applied != 0;
+        }
+        //数据库库存扣除偏差
+        return seckillGoodsMapper.adjustStockCount( id, -drift ) > 0;
+    }
+}
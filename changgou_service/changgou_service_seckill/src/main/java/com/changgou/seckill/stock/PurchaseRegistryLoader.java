@@ -0,0 +1,69 @@
+package com.changgou.seckill.stock;
+
+import com.changgou.seckill.dao.SeckillOrderMapper;
+import com.changgou.seckill.pojo.SeckillOrder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * @Author: Haotian
+ * @Date: 2020/3/8 16:20
+ * @Description: 启动时根据mysql中的秒杀订单重建redis中的购买登记表,下单热点路径不再查询mysql
+ */
+@Slf4j
+@Component
+public class PurchaseRegistryLoader implements ApplicationRunner {
+    /**
+     * 每页查询并写入redis的订单数
+     */
+    private static final int BATCH_SIZE = 1000;
+
+    @Autowired
+    private SeckillOrderMapper seckillOrderMapper;
+    @Autowired
+    private RedisTemplate redisTemplate;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        Date currentTime = new Date();
+        long lastId = 0;
+        int total = 0;
+        //按订单id游标分页,每页一次管道写入,内存中只保留一页订单
+        while (true) {
+            List<SeckillOrder> page = seckillOrderMapper.findOrdersOfActiveGoods( currentTime, lastId, BATCH_SIZE );
+            if (page.isEmpty()) {
+                break;
+            }
+            //管道批量写入,已存在的登记不覆盖
+            redisTemplate.executePipelined( (RedisCallback<Object>) connection -> {
+                for (SeckillOrder order : page) {
+                    if (order.getUserId() == null) {
+                        continue;
+                    }
+                    connection.hSetNX( bytes( SecKillStockReserver.SEC_KILL_RESERVATION_KEY + order.getSeckillId() ),
+                            bytes( order.getUserId() ), bytes( String.valueOf( order.getId() ) ) );
+                }
+                return null;
+            } );
+            total += page.size();
+            lastId = page.get( page.size() - 1 ).getId();
+            if (page.size() < BATCH_SIZE) {
+                break;
+            }
+        }
+        log.info( "秒杀购买登记表重建完成，共加载{}条订单", total );
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes( StandardCharsets.UTF_8 );
+    }
+}
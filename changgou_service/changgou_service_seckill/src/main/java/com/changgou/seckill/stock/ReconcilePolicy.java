@@ -0,0 +1,21 @@
+package com.changgou.seckill.stock;
+
+/**
+ * @Author: Haotian
+ * @Date: 2020/3/11 16:10
+ * @Description: 秒杀库存核对的修复策略
+ */
+public enum ReconcilePolicy {
+    /**
+     * 只记录偏差,不修复
+     */
+    REPORT,
+    /**
+     * 以数据库为准修复redis库存
+     */
+    REDIS,
+    /**
+     * 以redis为准修复数据库库存
+     */
+    DATABASE
+}
@@ -0,0 +1,30 @@
+package com.changgou.seckill.stock;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * @Author: Haotian
+ * @Date: 2020/3/8 10:15
+ * @Description: 秒杀库存预占结果
+ */
+@Getter
+@AllArgsConstructor
+public class ReserveResult {
+    /**
+     * 预占状态
+     */
+    private final ReserveStatus status;
+
+    /**
+     * 预占成功后的剩余库存,预占失败时为-1
+     */
+    private final long remaining;
+
+    /**
+     * 是否预占成功
+     */
+    public boolean isSuccess() {
+        return status == ReserveStatus.SUCCESS;
+    }
+}
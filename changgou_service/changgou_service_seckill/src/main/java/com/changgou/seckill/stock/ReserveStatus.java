@@ -0,0 +1,51 @@
+package com.changgou.seckill.stock;
+
+/**
+ * @Author: Haotian
+ * @Date: 2020/3/8 10:12
+ * @Description: 秒杀库存预占状态
+ */
+public enum ReserveStatus {
+    /**
+     * 预占成功
+     */
+    SUCCESS,
+    /**
+     * 重复提交
+     */
+    REPEAT,
+    /**
+     * 库存未加载
+     */
+    NOT_LOADED,
+    /**
+     * 库存不足
+     */
+    SOLD_OUT,
+    /**
+     * 已购买过该商品
+     */
+    PURCHASED;
+
+    /**
+     * 将预占脚本返回值转换为预占状态
+     *
+     * @param code 脚本返回值
+     * @return 预占状态
+     */
+    public static ReserveStatus of(long code) {
+        if (code >= 0) {
+            return SUCCESS;
+        }
+        if (code == -1) {
+            return REPEAT;
+        }
+        if (code == -2) {
+            return NOT_LOADED;
+        }
+        if (code == -3) {
+            return SOLD_OUT;
+        }
+        return PURCHASED;
+    }
+}
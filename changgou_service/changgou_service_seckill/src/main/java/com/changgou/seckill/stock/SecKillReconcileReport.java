@@ -0,0 +1,47 @@
+package com.changgou.seckill.stock;
+
+import lombok.Data;
+
+import java.io.Serializable;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * @Author: Haotian
+ * @Date: 2020/3/11 16:20
+ * @Description: 秒杀库存核对结果
+ * 偏差 = (数据库库存 + 订单数) - (redis库存 + 预占记录数),预占与订单创建都不会改变两侧合计,不为0即为库存漂移
+ */
+@Data
+public class SecKillReconcileReport implements Serializable {
+    private static final long serialVersionUID = 1L;
+    /**
+     * 核对时间
+     */
+    private Date reconcileTime = new Date();
+    /**
+     * 修复策略
+     */
+    private ReconcilePolicy policy;
+    /**
+     * 核对的商品数
+     */
+    private int checked;
+    /**
+     * 存在偏差的商品数
+     */
+    private int drifted;
+    /**
+     * 偏差绝对值合计
+     */
+    private long totalDrift;
+    /**
+     * 已修复的商品数
+     */
+    private int repaired;
+    /**
+     * 各商品偏差 key=商品id value=偏差
+     */
+    private Map<Long, Long> drifts = new HashMap<>();
+}
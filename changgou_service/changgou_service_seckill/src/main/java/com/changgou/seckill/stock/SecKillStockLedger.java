@@ -0,0 +1,24 @@
+package com.changgou.seckill.stock;
+
+import lombok.Data;
+
+/**
+ * @Author: Haotian
+ * @Date: 2020/3/11 16:15
+ * @Description: 数据库中的秒杀商品库存台账
+ */
+@Data
+public class SecKillStockLedger {
+    /**
+     * 秒杀商品id
+     */
+    private Long id;
+    /**
+     * 数据库剩余库存
+     */
+    private Long stockCount;
+    /**
+     * 已创建的订单数
+     */
+    private Long orderCount;
+}
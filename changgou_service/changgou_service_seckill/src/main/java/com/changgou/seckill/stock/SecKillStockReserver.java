@@ -0,0 +1,68 @@
+package com.changgou.seckill.stock;
+
+import com.changgou.seckill.constant.SecKillOrderStatus;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.scripting.support.ResourceScriptSource;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @Author: Haotian
+ * @Date: 2020/3/8 10:20
+ * @Description: 秒杀库存预占,基于lua脚本一次往返完成防重、库存校验、扣减与预占记录
+ */
+@Component
+public class SecKillStockReserver {
+    /**
+     * redis 中秒杀商品库存 key 前缀
+     */
+    public static final String SEC_KILL_GOODS_STOCK_COUNT_KEY = "sec_kill_goods_stock_count_key";
+    /**
+     * redis 中秒杀商品预占记录 key 前缀
+     */
+    public static final String SEC_KILL_RESERVATION_KEY = "sec_kill_reservation_key";
+    /**
+     * redis 中用户防重 key 前缀
+     */
+    private static final String SEC_KILL_USER_KEY = "secKill_user_";
+    /**
+     * 防重有效期,五分钟
+     */
+    private static final long REPEAT_COMMIT_SECONDS = TimeUnit.MINUTES.toSeconds( 5 );
+
+    private final DefaultRedisScript<Long> reserveScript;
+    @Autowired
+    private RedisTemplate redisTemplate;
+
+    public SecKillStockReserver() {
+        reserveScript = new DefaultRedisScript<>();
+        reserveScript.setScriptSource( new ResourceScriptSource( new ClassPathResource( "lua/sec_kill_reserve.lua" ) ) );
+        reserveScript.setResultType( Long.class );
+    }
+
+    /**
+     * 预占秒杀库存
+     *
+     * @param id       商品id
+     * @param username 用户名
+     * @param orderId  订单id
+     * @return 预占结果
+     */
+    public ReserveResult reserve(Long id, String username, Long orderId) {
+        List<Object> keys = Arrays.asList(
+                SEC_KILL_GOODS_STOCK_COUNT_KEY + id,
+                SEC_KILL_USER_KEY + username + "_id_" + id,
+                SEC_KILL_RESERVATION_KEY + id,
+                SecKillOrderStatus.SEC_KILL_ORDER_STATUS_KEY + id );
+        Long code = (Long) redisTemplate.execute( reserveScript, keys, username, REPEAT_COMMIT_SECONDS, orderId,
+                SoldOutListener.SEC_KILL_SOLD_OUT_CHANNEL, id, SecKillOrderStatus.QUEUED );
+        ReserveStatus status = ReserveStatus.of( code );
+        return new ReserveResult( status, status == ReserveStatus.SUCCESS ? code : -1 );
+    }
+}
@@ -0,0 +1,131 @@
+package com.changgou.seckill.stock;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * @Author: Haotian
+ * @Date: 2020/3/8 14:30
+ * @Description: 本地售罄标记,售罄商品的请求直接在本节点拒绝,不再访问redis与mysql
+ */
+@Component
+public class SoldOutFlags {
+    /**
+     * 售罄标记有效期,过期后请求重新访问redis,避免错过库存回补广播时商品一直被拒绝 单位毫秒
+     */
+    @Value("${seckill.sold-out.ttl:3000}")
+    private long ttl = 3000;
+    /**
+     * 已售罄商品,写时复制,读取无锁且不装箱
+     */
+    private volatile Flags flags = new Flags( new long[0], new long[0] );
+    /**
+     * 标记版本,每次清除标记时递增
+     */
+    private volatile long version;
+    /**
+     * 商品最近一次清除标记时的版本
+     */
+    private final Map<Long, Long> resetVersions = new ConcurrentHashMap<>();
+
+    /**
+     * 商品是否已售罄
+     *
+     * @param id 商品id
+     * @return 是否售罄
+     */
+    public boolean isSoldOut(long id) {
+        Flags current = flags;
+        int index = Arrays.binarySearch( current.ids, id );
+        return index >= 0 && current.expireTimes[index] > System.currentTimeMillis();
+    }
+
+    /**
+     * 当前标记版本,预占库存前读取,标记售罄时传入
+     *
+     * @return 标记版本
+     */
+    public long version() {
+        return version;
+    }
+
+    /**
+     * 标记商品售罄
+     *
+     * @param id 商品id
+     */
+    public void markSoldOut(long id) {
+        markSoldOut( id, version );
+    }
+
+    /**
+     * 标记商品售罄,读取版本之后商品已清除过标记时忽略,避免回补前的售罄结果覆盖回补
+     *
+     * @param id      商品id
+     * @param version 得出售罄结果前读取的标记版本
+     */
+    public synchronized void markSoldOut(long id, long version) {
+        if (resetVersions.getOrDefault( id, -1L ) >= version) {
+            return;
+        }
+        long expireTime = System.currentTimeMillis() + ttl;
+        Flags current = flags;
+        int index = Arrays.binarySearch( current.ids, id );
+        if (index >= 0) {
+            long[] expireTimes = current.expireTimes.clone();
+            expireTimes[index] = expireTime;
+            flags = new Flags( current.ids, expireTimes );
+            return;
+        }
+        int insertion = -index - 1;
+        flags = new Flags( insert( current.ids, insertion, id ), insert( current.expireTimes, insertion, expireTime ) );
+    }
+
+    /**
+     * 清除商品售罄标记
+     *
+     * @param id 商品id
+     */
+    public synchronized void reset(long id) {
+        //先递增版本,之后读取版本的预占结果才能再次标记售罄
+        resetVersions.put( id, version++ );
+        Flags current = flags;
+        int index = Arrays.binarySearch( current.ids, id );
+        if (index < 0) {
+            return;
+        }
+        flags = new Flags( remove( current.ids, index ), remove( current.expireTimes, index ) );
+    }
+
+    private static long[] insert(long[] values, int index, long value) {
+        long[] copy = new long[values.length + 1];
+        System.arraycopy( values, 0, copy, 0, index );
+        copy[index] = value;
+        System.arraycopy( values, index, copy, index + 1, values.length - index );
+        return copy;
+    }
+
+    private static long[] remove(long[] values, int index) {
+        long[] copy = new long[values.length - 1];
+        System.arraycopy( values, 0, copy, 0, index );
+        System.arraycopy( values, index + 1, copy, index, values.length - index - 1 );
+        return copy;
+    }
+
+    /**
+     * 有序的售罄商品id与对应的过期时间
+     */
+    private static final class Flags {
+        private final long[] ids;
+        private final long[] expireTimes;
+
+        private Flags(long[] ids, long[] expireTimes) {
+            this.ids = ids;
+            this.expireTimes = expireTimes;
+        }
+    }
+}
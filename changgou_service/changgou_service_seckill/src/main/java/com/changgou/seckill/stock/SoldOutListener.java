@@ -0,0 +1,39 @@
+package com.changgou.seckill.stock;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * @Author: Haotian
+ * @Date: 2020/3/8 14:45
+ * @Description: 监听售罄与库存回补广播,同步各节点的本地售罄标记
+ */
+@Component
+public class SoldOutListener implements MessageListener {
+    /**
+     * 售罄广播频道,消息内容为商品id
+     */
+    public static final String SEC_KILL_SOLD_OUT_CHANNEL = "sec_kill_sold_out_channel";
+    /**
+     * 库存回补广播频道,消息内容为商品id
+     */
+    public static final String SEC_KILL_RESTOCK_CHANNEL = "sec_kill_restock_channel";
+
+    @Autowired
+    private SoldOutFlags soldOutFlags;
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        long id = Long.parseLong( new String( message.getBody(), StandardCharsets.UTF_8 ) );
+        String channel = new String( message.getChannel(), StandardCharsets.UTF_8 );
+        if (SEC_KILL_RESTOCK_CHANNEL.equals( channel )) {
+            soldOutFlags.reset( id );
+        } else {
+            soldOutFlags.markSoldOut( id );
+        }
+    }
+}
@@ -1,19 +1,28 @@
 package com.changgou.seckill.task;
 
 import cn.hutool.core.collection.CollUtil;
-import cn.hutool.core.date.DateUtil;
-import com.changgou.common.util.DateUtils;
+import com.changgou.common.util.SecKillSlotCalendar;
+import com.changgou.common.util.SecKillSlotCalendar.Slot;
 import com.changgou.seckill.dao.SeckillGoodsMapper;
 import com.changgou.seckill.pojo.SeckillGoods;
+import com.changgou.seckill.stock.SecKillStockReserver;
+import com.changgou.seckill.stock.SoldOutFlags;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.RedisOperations;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 import tk.mybatis.mapper.entity.Example;
 
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
 
 /**
  * @Author: Haotian
@@ -27,58 +36,135 @@ public class SecKillGoodsPushTask {
      */
     private static final String SEC_KILL_GOODS_KEY = "sec_kill_goods_key";
     /**
-     * redis 中秒杀商品库存 key 前缀
+     * 只加载当前时间段与下一个时间段
      */
-    private static final String SEC_KILL_GOODS_STOCK_COUNT_KEY = "sec_kill_goods_stock_count_key";
+    public static final int LOAD_SLOT_COUNT = 2;
+    /**
+     * 每批管道写入的商品数
+     */
+    private static final int BATCH_SIZE = 500;
+    /**
+     * 每个时间段已加载商品的最大审核时间 key=时间段 value=审核时间高水位
+     */
+    private final Map<String, Date> checkTimeMarks = new ConcurrentHashMap<>();
+    /**
+     * 全量刷新间隔,审核后修改的商品(价格、时间段等)审核时间不变,定期全量加载才能更新,单位毫秒
+     */
+    @Value("${seckill.push.full-refresh-interval:300000}")
+    private long fullRefreshInterval;
+    /**
+     * 下一次全量刷新的时间
+     */
+    private long nextFullRefresh;
     @Autowired
     private SeckillGoodsMapper seckillGoodsMapper;
     @Autowired
     private RedisTemplate redisTemplate;
+    @Autowired
+    private SoldOutFlags soldOutFlags;
 
     @Scheduled(cron = "0/30 * * * * ?")
     public void loadSecKillGoodsToRedis() {
-        //查询所有符合条件的秒杀商品
-        //1.获取时间段集合并循环遍历出每一个时间段
-        List<Date> dateMenus = DateUtils.getDateMenus();
-        for (Date dateMenu : dateMenus) {
+        //1.获取当前与下一个时间段
+        List<Slot> slots = CollUtil.sub( SecKillSlotCalendar.slots(), 0, LOAD_SLOT_COUNT );
+        //到达全量刷新时间时清除高水位,本次全量加载各时间段
+        long now = System.currentTimeMillis();
+        if (now >= nextFullRefresh) {
+            checkTimeMarks.clear();
+            nextFullRefresh = now + fullRefreshInterval;
+        }
+        for (Slot slot : slots) {
             //2.获取每一个时间段名称,用于后续redis中key的设置
-            String redisExtName = DateUtils.date2Str( dateMenu );
-            //3.拼装查询条件
-            Example example = getExample( dateMenu, redisExtName );
+            String redisExtName = slot.getKey();
+            //3.拼装查询条件,只查询高水位之后审核通过的商品
+            Date mark = checkTimeMarks.get( redisExtName );
+            Example example = getExample( slot, mark );
             //4.执行查询获取对应的结果集
             List<SeckillGoods> secKillGoodsList = seckillGoodsMapper.selectByExample( example );
-            //5.将秒杀商品存入缓存
+            //5.分批通过管道将秒杀商品存入缓存
+            for (List<SeckillGoods> batch : CollUtil.split( secKillGoodsList, BATCH_SIZE )) {
+                pushBatch( redisExtName, batch );
+            }
+            //全量加载时移除已不属于该时间段或已取消审核的商品
+            if (mark == null) {
+                removeStale( redisExtName, secKillGoodsList );
+            }
+            //6.更新时间段高水位
             for (SeckillGoods goods : secKillGoodsList) {
-                redisTemplate.opsForHash().put( SEC_KILL_GOODS_KEY + redisExtName, goods.getId(), goods );
-                //加载秒杀商品的库存,使用到了redis原子性
-                redisTemplate.opsForValue().set( SEC_KILL_GOODS_STOCK_COUNT_KEY + goods.getId(), goods.getStockCount() );
+                if (goods.getCheckTime() != null && (mark == null || goods.getCheckTime().after( mark ))) {
+                    mark = goods.getCheckTime();
+                }
+            }
+            if (mark != null) {
+                checkTimeMarks.put( redisExtName, mark );
+            }
+        }
+        //清理已过期时间段的高水位
+        checkTimeMarks.keySet().retainAll( slots.stream().map( Slot::getKey ).collect( Collectors.toSet() ) );
+    }
+
+    /**
+     * 通过管道批量写入秒杀商品与库存,库存只在不存在时写入,不覆盖秒杀中的库存扣减
+     *
+     * @param redisExtName 时间段
+     * @param batch        秒杀商品
+     */
+    private void pushBatch(String redisExtName, List<SeckillGoods> batch) {
+        List<Object> results = redisTemplate.executePipelined( new SessionCallback<Object>() {
+            @Override
+            public Object execute(RedisOperations operations) throws DataAccessException {
+                for (SeckillGoods goods : batch) {
+                    operations.opsForHash().put( SEC_KILL_GOODS_KEY + redisExtName, goods.getId(), goods );
+                    operations.opsForValue().setIfAbsent( SecKillStockReserver.SEC_KILL_GOODS_STOCK_COUNT_KEY + goods.getId(), goods.getStockCount() );
+                }
+                return null;
+            }
+        } );
+        //库存首次加载的商品清除本地售罄标记
+        for (int i = 0; i < batch.size(); i++) {
+            if (Boolean.TRUE.equals( results.get( i * 2 + 1 ) )) {
+                soldOutFlags.reset( batch.get( i ).getId() );
             }
         }
     }
 
+    /**
+     * 移除缓存中不在本次全量加载结果内的商品
+     *
+     * @param redisExtName 时间段
+     * @param goodsList    本次全量加载的秒杀商品
+     */
+    private void removeStale(String redisExtName, List<SeckillGoods> goodsList) {
+        Set<Object> staleIds = redisTemplate.boundHashOps( SEC_KILL_GOODS_KEY + redisExtName ).keys();
+        if (CollUtil.isEmpty( staleIds )) {
+            return;
+        }
+        staleIds.removeAll( goodsList.stream().map( SeckillGoods::getId ).collect( Collectors.toSet() ) );
+        if (!staleIds.isEmpty()) {
+            redisTemplate.boundHashOps( SEC_KILL_GOODS_KEY + redisExtName ).delete( staleIds.toArray() );
+        }
+    }
+
     /**
      * 构建查询对象
      *
-     * @param dateMenu     当前时间段
-     * @param redisExtName 当前时间段转为yyyyMMddHH的值
+     * @param slot 当前时间段
+     * @param mark 当前时间段已加载商品的审核时间高水位,为空时加载全部
      * @return 查询条件对象
      */
-    private Example getExample(Date dateMenu, String redisExtName) {
+    private Example getExample(Slot slot, Date mark) {
         Example example = new Example( SeckillGoods.class );
         Example.Criteria criteria = example.createCriteria();
         //状态必须为审核通过 status=1
         criteria.andEqualTo( "status", "1" );
-        //商品库存个数>0
-        String startTime = DateUtil.formatDateTime( dateMenu );
-        criteria.andGreaterThanOrEqualTo( "startTime", startTime );
+        //秒杀商品开始>=当前时间段
+        criteria.andGreaterThanOrEqualTo( "startTime", slot.getStartTime() );
         //秒杀商品结束<当前时间段+2小时
-        String endTime = DateUtil.formatDateTime( DateUtil.offsetHour( dateMenu, 2 ) );
-        criteria.andLessThan( "endTime", endTime );
-        //排除之前已经加载到Redis缓存中的商品数据 key field=对象id value=对象
-        Set field = redisTemplate.boundHashOps( SEC_KILL_GOODS_KEY + redisExtName ).keys();
-        if (CollUtil.isNotEmpty( field )) {
-            criteria.andNotIn( "id", field );
+        criteria.andLessThan( "endTime", slot.getEndTime() );
+        //只加载高水位之后审核通过的商品,高水位当秒审核的商品重复写入是幂等的
+        if (mark != null) {
+            criteria.andGreaterThanOrEqualTo( "checkTime", mark );
         }
         return example;
     }
-}
\ No newline at end of file
+}
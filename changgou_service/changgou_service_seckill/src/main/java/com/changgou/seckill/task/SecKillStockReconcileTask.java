@@ -0,0 +1,22 @@
+package com.changgou.seckill.task;
+
+import com.changgou.seckill.service.SecKillStockReconcileService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * @Author: Haotian
+ * @Date: 2020/3/11 16:50
+ * @Description: 秒杀库存核对定时任务
+ */
+@Component
+public class SecKillStockReconcileTask {
+    @Autowired
+    private SecKillStockReconcileService secKillStockReconcileService;
+
+    @Scheduled(initialDelayString = "${seckill.reconcile.interval:60000}", fixedDelayString = "${seckill.reconcile.interval:60000}")
+    public void reconcile() {
+        secKillStockReconcileService.reconcile();
+    }
+}
@@ -0,0 +1,34 @@
+-- 秒杀库存预占脚本: 防重、重复购买校验、库存校验、扣减库存、写入预占记录与排队状态在一次调用中原子完成
+-- KEYS[1] 商品库存key  KEYS[2] 用户防重key  KEYS[3] 商品预占记录key,同时作为商品的购买登记表  KEYS[4] 商品订单状态key
+-- ARGV[1] 用户名  ARGV[2] 防重有效期(秒)  ARGV[3] 订单id  ARGV[4] 售罄广播频道  ARGV[5] 商品id  ARGV[6] 排队状态
+-- 返回值: >=0 预占成功后的剩余库存  -1 重复提交  -2 库存未加载  -3 库存不足  -4 已购买过该商品
+
+-- 1.防止用户重复提交,有效期内只放行第一次请求
+if not redis.call( 'set', KEYS[2], ARGV[3], 'NX', 'EX', ARGV[2] ) then
+    return -1
+end
+
+-- 2.校验用户是否已购买过该商品
+if redis.call( 'hexists', KEYS[3], ARGV[1] ) == 1 then
+    return -4
+end
+
+-- 3.校验库存,库存不会被扣减为负数
+local stock = tonumber( redis.call( 'get', KEYS[1] ) )
+if stock == nil then
+    return -2
+end
+if stock <= 0 then
+    return -3
+end
+
+-- 4.扣减库存并记录预占信息 field=用户名 value=订单id,订单状态置为排队中
+local left = redis.call( 'decr', KEYS[1] )
+redis.call( 'hset', KEYS[3], ARGV[1], ARGV[3] )
+redis.call( 'hset', KEYS[4], ARGV[1], ARGV[6] )
+
+-- 5.库存扣减为0时广播售罄消息,各节点更新本地售罄标记
+if left == 0 then
+    redis.call( 'publish', ARGV[4], ARGV[5] )
+end
+return left
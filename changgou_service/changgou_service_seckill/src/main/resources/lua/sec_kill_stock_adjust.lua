@@ -0,0 +1,18 @@
+-- 秒杀库存修正脚本: 按偏差调整redis库存,库存不会被调整为负数,库存由0变为正数时广播库存回补
+-- KEYS[1] 商品库存key
+-- ARGV[1] 库存偏差  ARGV[2] 库存回补广播频道  ARGV[3] 商品id
+-- 返回值: 实际调整的库存数,库存未加载时返回0
+
+local before = tonumber( redis.call( 'get', KEYS[1] ) )
+if before == nil then
+    return 0
+end
+local after = before + tonumber( ARGV[1] )
+if after < 0 then
+    after = 0
+end
+redis.call( 'set', KEYS[1], after )
+if before <= 0 and after > 0 then
+    redis.call( 'publish', ARGV[2], ARGV[3] )
+end
+return after - before
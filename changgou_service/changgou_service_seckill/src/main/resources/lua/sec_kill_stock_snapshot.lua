@@ -0,0 +1,18 @@
+-- 秒杀库存核对快照脚本: 一次调用原子读取一批商品的redis库存与预占记录数
+-- 每个商品依次占用 2 个key: 商品预占记录key, 商品库存key
+-- 返回值: 每个商品依次返回 库存是否已加载(1:已加载 0:未加载), 库存, 预占记录数
+
+local result = {}
+for index = 1, #KEYS, 2 do
+    local reserved = redis.call( 'hlen', KEYS[index] )
+    local value = redis.call( 'get', KEYS[index + 1] )
+    if value then
+        result[#result + 1] = 1
+        result[#result + 1] = tonumber( value )
+    else
+        result[#result + 1] = 0
+        result[#result + 1] = 0
+    end
+    result[#result + 1] = reserved
+end
+return result
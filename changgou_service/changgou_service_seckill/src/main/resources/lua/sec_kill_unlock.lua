@@ -0,0 +1,9 @@
+-- 秒杀任务锁释放脚本: 锁仍由当前实例持有时才删除,避免删除过期后已被其他实例获取的锁
+-- KEYS[1] 锁key
+-- ARGV[1] 实例id
+-- 返回值: 1 释放成功  0 锁已不属于当前实例
+
+if redis.call( 'get', KEYS[1] ) == ARGV[1] then
+    return redis.call( 'del', KEYS[1] )
+end
+return 0
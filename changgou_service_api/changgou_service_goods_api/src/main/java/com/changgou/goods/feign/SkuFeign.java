@@ -6,9 +6,11 @@ import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestParam;
 
 import java.util.List;
+import java.util.Map;
 
 /**
  * @Author: Haotian
@@ -45,6 +47,26 @@ public interface SkuFeign {
     @PostMapping("/sku/decr/count")
     Result<Object> decrCount(@RequestParam("username") String username);
 
+    /**
+     * 批量扣减库存，增加销量，任一sku库存不足时全部不扣减
+     *
+     * @param reservationId 预扣id，下单失败时按该id释放预扣的热点库存
+     * @param skuNums       sku id: 扣减数量
+     * @return 扣减失败时返回库存不足的sku id
+     */
+    @PostMapping("/sku/decr/counts")
+    Result<List<String>> decrCounts(@RequestParam("reservationId") String reservationId,
+                                    @RequestBody Map<String, Integer> skuNums);
+
+    /**
+     * 释放预扣的热点库存
+     *
+     * @param reservationId 预扣id
+     * @return 操作提示
+     */
+    @PostMapping("/sku/decr/release")
+    Result<Object> releaseReservation(@RequestParam("reservationId") String reservationId);
+
     /**
      * 回滚库存，扣减销量
      *
@@ -54,4 +76,13 @@ public interface SkuFeign {
      */
     @PostMapping("/sku/resumeStockNumber")
     Result<Object> resumeStockNumber(@RequestParam("skuId") String skuId, @RequestParam("num") Integer number);
-}
\ No newline at end of file
+
+    /**
+     * 按回补id批量回滚库存，扣减销量，同一回补id只回补一次，调用超时后可用相同回补id重试
+     *
+     * @param restocks 回补id: (sku id: 回滚数量)
+     * @return 操作提示
+     */
+    @PostMapping("/sku/resume/counts")
+    Result<Object> resumeCounts(@RequestBody Map<String, Map<String, Integer>> restocks);
+}
@@ -82,4 +82,16 @@ public class Task implements Serializable {
      */
     @Column(name = "errormsg")
     private String errormsg;
+
+    /**
+     * 领取任务的批次标识，发送期间有效
+     */
+    @Column(name = "claim_token")
+    private String claimToken;
+
+    /**
+     * 已发送次数
+     */
+    @Column(name = "retry_count")
+    private Integer retryCount;
 }
\ No newline at end of file
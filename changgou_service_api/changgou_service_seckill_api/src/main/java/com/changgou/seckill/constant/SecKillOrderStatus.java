@@ -0,0 +1,36 @@
+package com.changgou.seckill.constant;
+
+/**
+ * @Author: Haotian
+ * @Date: 2020/3/9 15:10
+ * @Description: 秒杀订单排队状态,由秒杀服务在下单入队时写入,由消息确认服务在订单落库或失败时更新
+ */
+public class SecKillOrderStatus {
+    /**
+     * redis 中秒杀订单状态 key 前缀,每个商品一个hash field=用户名 value=状态
+     */
+    public static final String SEC_KILL_ORDER_STATUS_KEY = "sec_kill_order_status_key";
+
+    /**
+     * 秒杀订单状态变更广播频道,消息内容为 商品id:用户名
+     */
+    public static final String SEC_KILL_ORDER_STATUS_CHANNEL = "sec_kill_order_status_channel";
+
+    /**
+     * 排队中
+     */
+    public static final String QUEUED = "queued";
+
+    /**
+     * 下单成功
+     */
+    public static final String SUCCESS = "success";
+
+    /**
+     * 下单失败
+     */
+    public static final String FAILED = "failed";
+
+    private SecKillOrderStatus() {
+    }
+}
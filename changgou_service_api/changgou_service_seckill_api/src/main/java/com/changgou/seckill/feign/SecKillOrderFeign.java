@@ -21,4 +21,14 @@ public interface SecKillOrderFeign {
      */
     @GetMapping("/seckillorder/add")
     Result<Object> add(@RequestParam("time") String time, @RequestParam("id") Long id);
+
+    /**
+     * 查询秒杀订单排队状态
+     *
+     * @param id      商品id
+     * @param timeout 长轮询等待时间,单位毫秒
+     * @return 订单状态
+     */
+    @GetMapping("/seckillorder/status")
+    Result<String> status(@RequestParam("id") Long id, @RequestParam("timeout") long timeout);
 }
\ No newline at end of file
@@ -1,5 +1,7 @@
 package com.changgou.seckill.web.aspect;
 
+import com.changgou.seckill.web.limiter.LimitKey;
+
 import java.lang.annotation.*;
 
 /**
@@ -12,5 +14,23 @@ import java.lang.annotation.*;
 @Target({ElementType.FIELD, ElementType.METHOD, ElementType.TYPE})
 @Retention(RetentionPolicy.RUNTIME) //不仅保存到class文件中，并且jvm加载class后，该注解依然存在
 public @interface AccessLimit {
+    /**
+     * 令牌桶名称,默认为 类名.方法名,不同接口使用各自的令牌桶
+     */
+    String name() default "";
+
+    /**
+     * 限流维度,默认所有请求共享一个令牌桶
+     */
+    LimitKey key() default LimitKey.GLOBAL;
+
+    /**
+     * 每秒生成令牌数
+     */
+    double rate() default 2.0;
 
-}
\ No newline at end of file
+    /**
+     * 令牌桶容量,允许的瞬时突发请求数
+     */
+    int burst() default 2;
+}
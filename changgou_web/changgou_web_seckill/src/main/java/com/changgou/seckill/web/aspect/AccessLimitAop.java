@@ -3,18 +3,26 @@ package com.changgou.seckill.web.aspect;
 import com.alibaba.fastjson.JSON;
 import com.changgou.common.pojo.Result;
 import com.changgou.common.pojo.StatusCode;
-import com.google.common.util.concurrent.RateLimiter;
+import com.changgou.seckill.web.limiter.AccessLimiter;
+import com.changgou.seckill.web.util.CookieUtil;
 import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.Signature;
 import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
 import org.aspectj.lang.annotation.Pointcut;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Scope;
 import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
 
 import javax.annotation.Resource;
 import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
+import java.util.List;
+import java.util.Set;
 
 /**
  * @Author: Haotian
@@ -26,21 +34,35 @@ import java.io.IOException;
 @Aspect
 public class AccessLimitAop {
     /**
-     * 设置令牌的生成速率,每秒生成两个令牌存入桶中
+     * 限流器,本地限流器先于redis限流器执行
      */
-    private RateLimiter rateLimiter = RateLimiter.create( 2.0 );
+    @Autowired
+    private List<AccessLimiter> accessLimiters;
+    @Resource
+    private HttpServletRequest request;
     @Resource
     private HttpServletResponse response;
+    /**
+     * 受信任的代理(网关)地址,只有来自这些地址的请求才读取 X-Forwarded-For 中由代理追加的最后一跳
+     */
+    @Value("${seckill.limit.trusted-proxies:}")
+    private Set<String> trustedProxies;
 
     @Pointcut("@annotation(com.changgou.seckill.web.aspect.AccessLimit)")
     public void limit() {
 
     }
 
-    @Around("limit()")
-    public Object around(ProceedingJoinPoint proceedingJoinPoint) {
+    @Around("limit() && @annotation(accessLimit)")
+    public Object around(ProceedingJoinPoint proceedingJoinPoint, AccessLimit accessLimit) {
+        //按用户限流的接口必须携带用户信息,不能让匿名请求共享或绕过令牌桶
+        String limitKey = resolveKey( accessLimit );
+        if (limitKey == null) {
+            this.outMessage( response, JSON.toJSONString( Result.builder().flag( false ).code( StatusCode.ERROR ).message( "请先登录" ).build() ) );
+            return null;
+        }
         //判定访问是否通过
-        boolean flag = rateLimiter.tryAcquire();
+        boolean flag = tryAcquire( proceedingJoinPoint, accessLimit, limitKey );
         Object obj = null;
         if (flag) {
             //允许访问
@@ -51,13 +73,72 @@ public class AccessLimitAop {
             }
         } else {
             //拒绝访问
-            String errorMessage = JSON.toJSONString( Result.builder().flag( false ).code( StatusCode.ERROR ).message( "fail" ) );
+            String errorMessage = JSON.toJSONString( Result.builder().flag( false ).code( StatusCode.ERROR ).message( "fail" ).build() );
             //将信息返回到客户端
             this.outMessage( response, errorMessage );
         }
         return obj;
     }
 
+    /**
+     * 依次通过各个限流器获取令牌,令牌桶按 接口_限流维度_维度值 区分
+     *
+     * @param joinPoint   切入点
+     * @param accessLimit 访问限制注解
+     * @param limitKey    限流维度值
+     * @return 是否获取成功
+     */
+    private boolean tryAcquire(ProceedingJoinPoint joinPoint, AccessLimit accessLimit, String limitKey) {
+        String name = accessLimit.name();
+        if (!StringUtils.hasText( name )) {
+            Signature signature = joinPoint.getSignature();
+            name = signature.getDeclaringType().getSimpleName() + "." + signature.getName();
+        }
+        String key = name + "_" + accessLimit.key().name() + "_" + limitKey;
+        for (AccessLimiter accessLimiter : accessLimiters) {
+            if (!accessLimiter.tryAcquire( key, accessLimit.rate(), accessLimit.burst() )) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 根据限流维度解析令牌桶key
+     *
+     * @param accessLimit 访问限制注解
+     * @return 令牌桶key,按用户限流且请求未携带用户时返回null
+     */
+    private String resolveKey(AccessLimit accessLimit) {
+        switch (accessLimit.key()) {
+            case USER:
+                String uid = CookieUtil.readCookie( request, "uid" ).get( "uid" );
+                return StringUtils.hasText( uid ) ? uid : null;
+            case IP:
+                return clientIp();
+            case ITEM:
+                return String.valueOf( request.getParameter( "id" ) );
+            default:
+                return "all";
+        }
+    }
+
+    /**
+     * 获取客户端地址,X-Forwarded-For 可由客户端伪造,只信任受信任代理追加的最后一跳
+     *
+     * @return 客户端地址
+     */
+    private String clientIp() {
+        String remoteAddr = request.getRemoteAddr();
+        String forwardedFor = request.getHeader( "X-Forwarded-For" );
+        if (!trustedProxies.contains( remoteAddr ) || !StringUtils.hasText( forwardedFor )) {
+            return remoteAddr;
+        }
+        String[] hops = forwardedFor.split( "," );
+        String lastHop = hops[hops.length - 1].trim();
+        return StringUtils.hasText( lastHop ) ? lastHop : remoteAddr;
+    }
+
     /**
      * 将错误信息输出到客户端
      *
@@ -1,8 +1,7 @@
 package com.changgou.seckill.web.controller;
 
-import cn.hutool.core.date.DateUtil;
 import com.changgou.common.pojo.Result;
-import com.changgou.common.util.DateUtils;
+import com.changgou.common.util.SecKillSlotCalendar;
 import com.changgou.seckill.feign.SecKillGoodsFeign;
 import com.changgou.seckill.pojo.SeckillGoods;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -11,8 +10,6 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.ResponseBody;
 
-import java.util.ArrayList;
-import java.util.Date;
 import java.util.List;
 
 /**
@@ -44,14 +41,8 @@ public class SecKillGoodsController {
     @GetMapping("/timeMenus")
     @ResponseBody
     public List<String> timeMenus() {
-        //获取当前时间段相关信息集合
-        List<Date> dateMenus = DateUtils.getDateMenus();
-        List<String> result = new ArrayList<>();
-        for (Date dateMenu : dateMenus) {
-            String dateTime = DateUtil.formatDateTime( dateMenu );
-            result.add( dateTime );
-        }
-        return result;
+        //获取当前时间段相关信息集合,时间段日历已缓存格式化结果
+        return SecKillSlotCalendar.menuLabels();
     }
 
     /**
@@ -63,6 +54,6 @@ public class SecKillGoodsController {
     @GetMapping("/list")
     @ResponseBody
     public Result<List<SeckillGoods>> list(String time) {
-        return secKillGoodsFeign.list( DateUtils.formatStr( time ) );
+        return secKillGoodsFeign.list( SecKillSlotCalendar.slotKey( time ) );
     }
 }
\ No newline at end of file
@@ -4,10 +4,15 @@ import cn.hutool.core.util.IdUtil;
 import cn.hutool.core.util.StrUtil;
 import com.changgou.common.pojo.Result;
 import com.changgou.common.pojo.StatusCode;
+import com.changgou.common.util.SecKillSlotCalendar;
 import com.changgou.seckill.feign.SecKillOrderFeign;
 import com.changgou.seckill.web.aspect.AccessLimit;
+import com.changgou.seckill.web.limiter.LimitKey;
+import com.changgou.seckill.web.queue.QueueTicket;
+import com.changgou.seckill.web.queue.WaitingRoom;
 import com.changgou.seckill.web.util.CookieUtil;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.web.bind.annotation.*;
 
@@ -26,6 +31,13 @@ public class SecKillOrderController {
     private SecKillOrderFeign secKillOrderFeign;
     @Autowired
     private RedisTemplate redisTemplate;
+    @Autowired
+    private WaitingRoom waitingRoom;
+    /**
+     * 是否开启排队,开启后只有已放行的用户可以下单
+     */
+    @Value("${seckill.queue.enabled:false}")
+    private boolean queueEnabled;
 
     /**
      * 抢单
@@ -36,7 +48,7 @@ public class SecKillOrderController {
      * @return 抢单信息
      */
     @GetMapping("/add")
-    @AccessLimit
+    @AccessLimit(key = LimitKey.USER, rate = 1.0, burst = 2)
     public Result<Object> add(@RequestParam("time") String time, @RequestParam("id") Long id, @RequestParam("random") String random, HttpServletRequest request) {
         String jti = CookieUtil.readCookie( request, "uid" ).get( "uid" );
         String redisRandomCode = (String) redisTemplate.opsForValue().get( "randomCode_" + jti );
@@ -47,9 +59,80 @@ public class SecKillOrderController {
                     .code( StatusCode.ERROR )
                     .message( "下单失败" ).build();
         }
+        //未放行的用户继续排队
+        if (queueEnabled) {
+            if (!isCurrentSlot( time )) {
+                return Result.builder()
+                        .flag( false )
+                        .code( StatusCode.ERROR )
+                        .message( "秒杀时间段已结束" ).build();
+            }
+            QueueTicket ticket = waitingRoom.join( time, id, jti );
+            if (!ticket.getAdmitted()) {
+                return Result.builder()
+                        .flag( false )
+                        .code( StatusCode.ERROR )
+                        .data( ticket )
+                        .message( ticket.getClosed() ? "商品已售罄" : "排队中" ).build();
+            }
+            //下单后释放放行名额
+            try {
+                return secKillOrderFeign.add( time, id );
+            } finally {
+                waitingRoom.consume( time, id, ticket.getTicket() );
+            }
+        }
         return secKillOrderFeign.add( time, id );
     }
 
+    /**
+     * 领取秒杀排队号并查询排队位置,重复调用返回同一排队号
+     *
+     * @param time 当前时间段
+     * @param id   商品id
+     * @return 排队信息
+     */
+    @GetMapping("/queue")
+    @AccessLimit(key = LimitKey.USER, rate = 1.0, burst = 3)
+    public Result<QueueTicket> queue(@RequestParam("time") String time, @RequestParam("id") Long id, HttpServletRequest request) {
+        //只能在当前时间段排队,避免过期或伪造的时间段关闭商品排队
+        if (!isCurrentSlot( time )) {
+            return Result.<QueueTicket>builder()
+                    .flag( false )
+                    .code( StatusCode.ERROR )
+                    .message( "秒杀时间段已结束" ).build();
+        }
+        String jti = CookieUtil.readCookie( request, "uid" ).get( "uid" );
+        QueueTicket ticket = waitingRoom.join( time, id, jti );
+        return Result.<QueueTicket>builder()
+                .flag( true )
+                .code( StatusCode.OK )
+                .data( ticket )
+                .message( ticket.getClosed() ? "商品已售罄" : "查询排队信息成功" ).build();
+    }
+
+    /**
+     * 查询秒杀订单排队状态
+     *
+     * @param id      商品id
+     * @param timeout 长轮询等待时间,单位毫秒
+     * @return 订单状态 queued:排队中 success:下单成功 failed:下单失败
+     */
+    @GetMapping("/status")
+    public Result<String> status(@RequestParam("id") Long id, @RequestParam(value = "timeout", defaultValue = "0") long timeout) {
+        return secKillOrderFeign.status( id, timeout );
+    }
+
+    /**
+     * 是否为当前秒杀时间段
+     *
+     * @param time 时间段 格式 yyyyMMddHH
+     * @return 是否为当前时间段
+     */
+    private boolean isCurrentSlot(String time) {
+        return SecKillSlotCalendar.slots().get( 0 ).getKey().equals( time );
+    }
+
     /**
      * 生成访问接口随机数
      *
@@ -0,0 +1,18 @@
+package com.changgou.seckill.web.limiter;
+
+/**
+ * @Author: Haotian
+ * @Date: 2020/3/10 14:15
+ * @Description: 访问限流器,按顺序依次校验,任一限流器拒绝即拒绝访问
+ */
+public interface AccessLimiter {
+    /**
+     * 尝试获取一个令牌
+     *
+     * @param key   令牌桶key
+     * @param rate  每秒生成令牌数
+     * @param burst 令牌桶容量
+     * @return 是否获取成功
+     */
+    boolean tryAcquire(String key, double rate, int burst);
+}
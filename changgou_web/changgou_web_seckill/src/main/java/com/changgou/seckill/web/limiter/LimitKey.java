@@ -0,0 +1,25 @@
+package com.changgou.seckill.web.limiter;
+
+/**
+ * @Author: Haotian
+ * @Date: 2020/3/10 14:10
+ * @Description: 限流维度
+ */
+public enum LimitKey {
+    /**
+     * 所有请求共享一个令牌桶
+     */
+    GLOBAL,
+    /**
+     * 每个用户一个令牌桶
+     */
+    USER,
+    /**
+     * 每个ip一个令牌桶
+     */
+    IP,
+    /**
+     * 每个秒杀商品一个令牌桶
+     */
+    ITEM
+}
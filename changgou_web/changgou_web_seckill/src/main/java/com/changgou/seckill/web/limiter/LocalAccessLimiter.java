@@ -0,0 +1,85 @@
+package com.changgou.seckill.web.limiter;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * @Author: Haotian
+ * @Date: 2020/3/10 14:20
+ * @Description: 本地分段令牌桶限流器,在访问redis前预先过滤单节点上已超限的请求
+ */
+@Component
+@Order(1)
+@ConditionalOnProperty(name = "seckill.limit.local-enabled", havingValue = "true", matchIfMissing = true)
+public class LocalAccessLimiter implements AccessLimiter {
+    /**
+     * 分段数,不同分段的令牌桶互不竞争锁
+     */
+    private static final int STRIPE_COUNT = 64;
+    /**
+     * 每个分段最多保留的令牌桶数,超出后淘汰最久未访问的令牌桶
+     */
+    private static final int MAX_BUCKETS_PER_STRIPE = 1024;
+
+    private final Stripe[] stripes = new Stripe[STRIPE_COUNT];
+
+    public LocalAccessLimiter() {
+        for (int i = 0; i < STRIPE_COUNT; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    @Override
+    public boolean tryAcquire(String key, double rate, int burst) {
+        Stripe stripe = stripes[Math.floorMod( key.hashCode(), STRIPE_COUNT )];
+        long now = System.nanoTime();
+        synchronized (stripe) {
+            Bucket bucket = stripe.get( key );
+            if (bucket == null) {
+                bucket = new Bucket( burst, now );
+                stripe.put( key, bucket );
+            }
+            //按距上次取令牌的时间补充令牌,不超过桶容量
+            bucket.tokens = Math.min( burst, bucket.tokens + (now - bucket.timestamp) * rate / 1_000_000_000L );
+            bucket.timestamp = now;
+            if (bucket.tokens >= 1) {
+                bucket.tokens -= 1;
+                return true;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * 令牌桶分段,按访问顺序淘汰令牌桶
+     */
+    private static class Stripe extends LinkedHashMap<String, Bucket> {
+        private static final long serialVersionUID = 1L;
+
+        Stripe() {
+            super( 16, 0.75f, true );
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Bucket> eldest) {
+            return size() > MAX_BUCKETS_PER_STRIPE;
+        }
+    }
+
+    /**
+     * 令牌桶
+     */
+    private static class Bucket {
+        private double tokens;
+        private long timestamp;
+
+        Bucket(double tokens, long timestamp) {
+            this.tokens = tokens;
+            this.timestamp = timestamp;
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.changgou.seckill.web.limiter;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.annotation.Order;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.scripting.support.ResourceScriptSource;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+
+/**
+ * @Author: Haotian
+ * @Date: 2020/3/10 14:40
+ * @Description: redis 令牌桶限流器,多个秒杀页面服务实例共享令牌桶
+ */
+@Slf4j
+@Component
+@Order(2)
+@ConditionalOnProperty(name = "seckill.limit.redis-enabled", havingValue = "true", matchIfMissing = true)
+public class RedisAccessLimiter implements AccessLimiter {
+    /**
+     * redis 中令牌桶 key 前缀
+     */
+    private static final String ACCESS_LIMIT_KEY = "access_limit_key_";
+
+    private final DefaultRedisScript<Long> tokenBucketScript;
+    @Autowired
+    private RedisTemplate redisTemplate;
+
+    public RedisAccessLimiter() {
+        tokenBucketScript = new DefaultRedisScript<>();
+        tokenBucketScript.setScriptSource( new ResourceScriptSource( new ClassPathResource( "lua/token_bucket.lua" ) ) );
+        tokenBucketScript.setResultType( Long.class );
+    }
+
+    @Override
+    public boolean tryAcquire(String key, double rate, int burst) {
+        try {
+            Long allowed = (Long) redisTemplate.execute( tokenBucketScript, Collections.singletonList( ACCESS_LIMIT_KEY + key ),
+                    rate, burst, System.currentTimeMillis() );
+            return allowed != null && allowed == 1;
+        } catch (RuntimeException e) {
+            //redis 不可用时放行,由本地限流器与秒杀服务兜底
+            log.error( "redis 限流失败，key：{}", key, e );
+            return true;
+        }
+    }
+}
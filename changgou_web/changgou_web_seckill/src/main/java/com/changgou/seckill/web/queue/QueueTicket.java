@@ -0,0 +1,37 @@
+package com.changgou.seckill.web.queue;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * @Author: Haotian
+ * @Date: 2020/3/12 10:10
+ * @Description: 秒杀排队号
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class QueueTicket implements Serializable {
+    private static final long serialVersionUID = 1L;
+    /**
+     * 排队号,排队已关闭且未领取排队号时为-1
+     */
+    private Long ticket;
+    /**
+     * 前方排队人数,为0时已放行
+     */
+    private Long position;
+    /**
+     * 是否已放行,可以下单
+     */
+    private Boolean admitted;
+    /**
+     * 排队是否已关闭,商品售罄后不再发放排队号与放行
+     */
+    private Boolean closed;
+}
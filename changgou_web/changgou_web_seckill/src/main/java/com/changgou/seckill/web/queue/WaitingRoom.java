@@ -0,0 +1,166 @@
+package com.changgou.seckill.web.queue;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.scripting.support.ResourceScriptSource;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * @Author: Haotian
+ * @Date: 2020/3/12 10:20
+ * @Description: 秒杀排队室,用户按领取排队号的顺序分批放行,放行进度为单个计数,查询排队位置只需一次redis调用
+ * 排队数据按 时间段_商品id 区分,不同时间段的同一商品互不影响
+ */
+@Component
+public class WaitingRoom {
+    /**
+     * 排队中商品集合 value=时间段:商品id
+     */
+    private static final String QUEUE_ITEMS_KEY = "sec_kill_queue_items";
+    /**
+     * 商品排队用户 key 前缀,有序集合 member=用户标识 score=排队号
+     */
+    private static final String QUEUE_KEY = "sec_kill_queue_";
+    /**
+     * 商品排队号计数器 key 前缀
+     */
+    private static final String QUEUE_SEQUENCE_KEY = "sec_kill_queue_sequence_";
+    /**
+     * 商品已放行排队号 key 前缀,排队号不大于该值的用户已放行
+     */
+    private static final String QUEUE_ADMITTED_KEY = "sec_kill_queue_admitted_";
+    /**
+     * 商品已放行未下单排队号 key 前缀,有序集合 member=排队号 score=放行时间
+     */
+    private static final String QUEUE_OUTSTANDING_KEY = "sec_kill_queue_outstanding_";
+    /**
+     * 商品排队关闭标记 key 前缀
+     */
+    private static final String QUEUE_CLOSED_KEY = "sec_kill_queue_closed_";
+    /**
+     * 放行锁,多个节点中同一周期只有一个节点放行
+     */
+    private static final String ADMIT_LOCK_KEY = "sec_kill_queue_admit_lock";
+
+    private final DefaultRedisScript<List> joinScript;
+    private final DefaultRedisScript<List> admitScript;
+    /**
+     * 排队数据有效期,单位秒
+     */
+    @Value("${seckill.queue.ttl:7200}")
+    private long ttl;
+    /**
+     * 放行后等待下单的时间,单位毫秒,超时未下单的用户不再占用放行名额,需重新排队
+     */
+    @Value("${seckill.queue.admit-timeout:60000}")
+    private long admitTimeout;
+    @Autowired
+    private RedisTemplate redisTemplate;
+
+    public WaitingRoom() {
+        joinScript = new DefaultRedisScript<>();
+        joinScript.setScriptSource( new ResourceScriptSource( new ClassPathResource( "lua/waiting_room_join.lua" ) ) );
+        joinScript.setResultType( List.class );
+        admitScript = new DefaultRedisScript<>();
+        admitScript.setScriptSource( new ResourceScriptSource( new ClassPathResource( "lua/waiting_room_admit.lua" ) ) );
+        admitScript.setResultType( List.class );
+    }
+
+    /**
+     * 领取排队号并查询排队位置,重复调用返回同一排队号,已下单或放行超时的用户重新领取排队号
+     *
+     * @param time 时间段 格式 yyyyMMddHH
+     * @param id   商品id
+     * @param uid  用户标识
+     * @return 排队号
+     */
+    @SuppressWarnings("unchecked")
+    public QueueTicket join(String time, Long id, String uid) {
+        String item = item( time, id );
+        List<String> keys = Arrays.asList( QUEUE_KEY + item, QUEUE_SEQUENCE_KEY + item, QUEUE_ADMITTED_KEY + item,
+                QUEUE_CLOSED_KEY + item, QUEUE_ITEMS_KEY, QUEUE_OUTSTANDING_KEY + item );
+        List<Long> result = (List<Long>) redisTemplate.execute( joinScript, keys, uid, time + ":" + id, ttl,
+                System.currentTimeMillis(), admitTimeout );
+        long ticket = result.get( 0 );
+        long position = Math.max( 0, ticket - result.get( 1 ) );
+        return QueueTicket.builder()
+                .ticket( ticket )
+                .position( position )
+                .admitted( ticket > 0 && position == 0 )
+                .closed( result.get( 2 ) == 1 ).build();
+    }
+
+    /**
+     * 按排队顺序放行一批用户,已放行未下单的用户计入放行名额
+     *
+     * @param time     时间段
+     * @param id       商品id
+     * @param count    本次最多放行人数
+     * @param capacity 已放行未下单人数的上限
+     * @return 仍在排队的人数
+     */
+    @SuppressWarnings("unchecked")
+    public long admit(String time, Long id, long count, long capacity) {
+        String item = item( time, id );
+        List<Long> result = (List<Long>) redisTemplate.execute( admitScript,
+                Arrays.asList( QUEUE_SEQUENCE_KEY + item, QUEUE_ADMITTED_KEY + item, QUEUE_OUTSTANDING_KEY + item ),
+                count, capacity, System.currentTimeMillis(), admitTimeout, ttl );
+        return result.get( 1 );
+    }
+
+    /**
+     * 已放行的用户完成下单,释放放行名额,再次下单需重新排队
+     *
+     * @param time   时间段
+     * @param id     商品id
+     * @param ticket 排队号
+     */
+    public void consume(String time, Long id, Long ticket) {
+        redisTemplate.opsForZSet().remove( QUEUE_OUTSTANDING_KEY + item( time, id ), ticket.toString() );
+    }
+
+    /**
+     * 关闭商品排队,不再发放排队号与放行
+     *
+     * @param time 时间段
+     * @param id   商品id
+     */
+    public void close(String time, Long id) {
+        redisTemplate.opsForValue().set( QUEUE_CLOSED_KEY + item( time, id ), 1, ttl, TimeUnit.SECONDS );
+        redisTemplate.opsForSet().remove( QUEUE_ITEMS_KEY, time + ":" + id );
+    }
+
+    /**
+     * 获取排队中的商品
+     *
+     * @return 时间段:商品id
+     */
+    public Set<String> activeItems() {
+        Set<Object> members = redisTemplate.opsForSet().members( QUEUE_ITEMS_KEY );
+        return members == null ? Collections.emptySet() : members.stream().map( Object::toString ).collect( Collectors.toSet() );
+    }
+
+    /**
+     * 获取本周期的放行锁
+     *
+     * @param millis 放行周期,单位毫秒
+     * @return 是否获取成功
+     */
+    public boolean tryLockAdmission(long millis) {
+        return Boolean.TRUE.equals( redisTemplate.opsForValue().setIfAbsent( ADMIT_LOCK_KEY, 1, millis, TimeUnit.MILLISECONDS ) );
+    }
+
+    private String item(String time, Long id) {
+        return time + "_" + id;
+    }
+}
@@ -0,0 +1,96 @@
+package com.changgou.seckill.web.queue;
+
+import com.changgou.common.pojo.Result;
+import com.changgou.seckill.feign.SecKillGoodsFeign;
+import com.changgou.seckill.pojo.SeckillGoods;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * @Author: Haotian
+ * @Date: 2020/3/12 10:40
+ * @Description: 秒杀排队放行任务,已放行未下单人数不超过剩余库存的一定比例,每批放行人数不超过订单处理能力,商品售罄后关闭排队
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "seckill.queue.enabled", havingValue = "true")
+public class WaitingRoomAdmissionTask {
+    /**
+     * 放行周期,单位毫秒
+     */
+    @Value("${seckill.queue.admit-interval:1000}")
+    private long admitInterval;
+    /**
+     * 每个商品每周期最多放行人数,按订单处理能力配置
+     */
+    @Value("${seckill.queue.admit-batch:500}")
+    private long admitBatch;
+    /**
+     * 已放行未下单人数与剩余库存的比例,覆盖放弃下单与下单失败的用户
+     */
+    @Value("${seckill.queue.overbook:1.5}")
+    private double overbook;
+    @Autowired
+    private WaitingRoom waitingRoom;
+    @Autowired
+    private SecKillGoodsFeign secKillGoodsFeign;
+
+    @Scheduled(fixedDelayString = "${seckill.queue.admit-interval:1000}")
+    public void admit() {
+        if (!waitingRoom.tryLockAdmission( admitInterval )) {
+            return;
+        }
+        //1.按时间段分组排队中的商品
+        Map<String, List<Long>> items = waitingRoom.activeItems().stream()
+                .collect( Collectors.groupingBy( item -> item.substring( 0, item.indexOf( ':' ) ),
+                        Collectors.mapping( item -> Long.valueOf( item.substring( item.indexOf( ':' ) + 1 ) ), Collectors.toList() ) ) );
+        for (Map.Entry<String, List<Long>> entry : items.entrySet()) {
+            String time = entry.getKey();
+            //2.每个时间段查询一次剩余库存
+            Map<Long, Integer> stockCounts = stockCounts( time );
+            if (stockCounts == null) {
+                continue;
+            }
+            for (Long id : entry.getValue()) {
+                //3.已售罄或已不在秒杀中的商品关闭排队,其余商品放行到已放行未下单人数达到剩余库存的比例
+                Integer stockCount = stockCounts.get( id );
+                if (stockCount == null || stockCount <= 0) {
+                    waitingRoom.close( time, id );
+                    continue;
+                }
+                waitingRoom.admit( time, id, admitBatch, (long) Math.ceil( stockCount * overbook ) );
+            }
+        }
+    }
+
+    /**
+     * 查询时间段内商品的剩余库存
+     *
+     * @param time 时间段
+     * @return 剩余库存 key=商品id value=剩余库存,查询失败时为null
+     */
+    private Map<Long, Integer> stockCounts(String time) {
+        try {
+            Result<List<SeckillGoods>> result = secKillGoodsFeign.list( time );
+            Map<Long, Integer> stockCounts = new HashMap<>();
+            if (result != null && result.getData() != null) {
+                for (SeckillGoods goods : result.getData()) {
+                    stockCounts.put( goods.getId(), goods.getStockCount() );
+                }
+            }
+            return stockCounts;
+        } catch (RuntimeException e) {
+            log.error( "查询秒杀商品库存失败，时间段：{}", time, e );
+            return null;
+        }
+    }
+}
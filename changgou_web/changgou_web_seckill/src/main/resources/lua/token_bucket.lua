@@ -0,0 +1,32 @@
+-- 令牌桶限流脚本,多个秒杀页面服务实例共享同一个令牌桶
+-- KEYS[1] 令牌桶key
+-- ARGV[1] 每秒生成令牌数  ARGV[2] 令牌桶容量  ARGV[3] 当前时间(毫秒)
+-- 返回值: 1 获取令牌成功  0 获取令牌失败
+
+local rate = tonumber( ARGV[1] )
+local burst = tonumber( ARGV[2] )
+local now = tonumber( ARGV[3] )
+
+local bucket = redis.call( 'hmget', KEYS[1], 'tokens', 'timestamp' )
+local tokens = tonumber( bucket[1] )
+local timestamp = tonumber( bucket[2] )
+if tokens == nil or timestamp == nil then
+    tokens = burst
+    timestamp = now
+end
+
+-- 按距上次取令牌的时间补充令牌,不超过桶容量
+if now > timestamp then
+    tokens = math.min( burst, tokens + ( now - timestamp ) * rate / 1000 )
+    timestamp = now
+end
+
+local allowed = 0
+if tokens >= 1 then
+    tokens = tokens - 1
+    allowed = 1
+end
+redis.call( 'hmset', KEYS[1], 'tokens', tokens, 'timestamp', timestamp )
+-- 令牌桶补满后即可过期,过期与桶满等价
+redis.call( 'pexpire', KEYS[1], math.ceil( burst * 1000 / rate ) + 1000 )
+return allowed
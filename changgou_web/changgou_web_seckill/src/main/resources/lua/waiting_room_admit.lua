@@ -0,0 +1,21 @@
+-- 秒杀放行脚本: 按排队号顺序放行一批用户,放行进度不会超过已发放的排队号,已放行未下单的人数不超过放行名额
+-- KEYS[1] 商品排队号计数器key  KEYS[2] 商品已放行排队号key  KEYS[3] 商品已放行未下单排队号key
+-- ARGV[1] 本次最多放行人数  ARGV[2] 已放行未下单人数上限  ARGV[3] 当前时间(毫秒)  ARGV[4] 放行后等待下单时间(毫秒)  ARGV[5] 排队数据有效期(秒)
+-- 返回值: {本次放行人数, 仍在排队人数}
+
+local now = tonumber( ARGV[3] )
+-- 超时未下单的用户不再占用放行名额
+redis.call( 'zremrangebyscore', KEYS[3], '-inf', now - tonumber( ARGV[4] ) )
+local outstanding = redis.call( 'zcard', KEYS[3] )
+local issued = tonumber( redis.call( 'get', KEYS[1] ) or '0' )
+local admitted = tonumber( redis.call( 'get', KEYS[2] ) or '0' )
+local count = math.min( tonumber( ARGV[1] ), tonumber( ARGV[2] ) - outstanding )
+local target = math.min( admitted + math.max( count, 0 ), issued )
+if target > admitted then
+    for ticket = admitted + 1, target do
+        redis.call( 'zadd', KEYS[3], now, ticket )
+    end
+    redis.call( 'set', KEYS[2], target, 'EX', ARGV[5] )
+    redis.call( 'expire', KEYS[3], ARGV[5] )
+end
+return { target - admitted, issued - target }
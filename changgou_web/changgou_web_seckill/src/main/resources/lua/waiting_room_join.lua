@@ -0,0 +1,30 @@
+-- 秒杀排队脚本: 领取排队号并返回放行进度,已领取排队号的用户直接返回原排队号,轮询排队位置同样调用本脚本
+-- 放行只在等待下单时间内有效,已下单或超时未下单的用户重新领取排队号
+-- KEYS[1] 商品排队用户key  KEYS[2] 商品排队号计数器key  KEYS[3] 商品已放行排队号key  KEYS[4] 商品排队关闭标记key  KEYS[5] 排队中商品集合key
+-- KEYS[6] 商品已放行未下单排队号key
+-- ARGV[1] 用户标识  ARGV[2] 排队中商品 时间段:商品id  ARGV[3] 排队数据有效期(秒)  ARGV[4] 当前时间(毫秒)  ARGV[5] 放行后等待下单时间(毫秒)
+-- 返回值: {排队号, 已放行排队号, 排队是否关闭},排队已关闭且未领取排队号时排队号为-1
+
+local closed = redis.call( 'exists', KEYS[4] )
+local admitted = tonumber( redis.call( 'get', KEYS[3] ) or '0' )
+local ticket = redis.call( 'zscore', KEYS[1], ARGV[1] )
+if ticket and tonumber( ticket ) <= admitted then
+    -- 已放行的排队号仍在已放行未下单集合中且未超时才可以下单
+    local admitTime = redis.call( 'zscore', KEYS[6], ticket )
+    if admitTime and tonumber( admitTime ) > tonumber( ARGV[4] ) - tonumber( ARGV[5] ) then
+        return { tonumber( ticket ), admitted, closed }
+    end
+    ticket = nil
+end
+if not ticket then
+    if closed == 1 then
+        return { -1, 0, 1 }
+    end
+    -- 排队号单调递增,按领取顺序放行
+    ticket = redis.call( 'incr', KEYS[2] )
+    redis.call( 'zadd', KEYS[1], ticket, ARGV[1] )
+    redis.call( 'sadd', KEYS[5], ARGV[2] )
+    redis.call( 'expire', KEYS[1], ARGV[3] )
+    redis.call( 'expire', KEYS[2], ARGV[3] )
+end
+return { tonumber( ticket ), admitted, closed }
@@ -0,0 +1,11 @@
+-- ----------------------------
+-- Table structure for tb_sku_stock_flow
+-- 热点商品 redis 库存回写流水，按流水id去重保证 mq 重复投递时只回写一次
+-- 关闭订单回滚库存的回补id(close:订单号)也记录在此表，保证调用超时重试时只回补一次
+-- ----------------------------
+DROP TABLE IF EXISTS `tb_sku_stock_flow`;
+CREATE TABLE `tb_sku_stock_flow` (
+  `id` varchar(64) COLLATE utf8_bin NOT NULL COMMENT '库存流水id',
+  `create_time` datetime DEFAULT NULL COMMENT '回写时间',
+  PRIMARY KEY (`id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8 COLLATE=utf8_bin COMMENT='热点商品库存回写流水';
@@ -0,0 +1,10 @@
+-- ----------------------------
+-- Indexes for tb_order 订单分页查询
+-- 游标分页按 (create_time,id) 倒序，create_time 索引已隐含主键 id
+-- 用户名、收货人手机、物流单号、交易流水号支持精确与前缀匹配，联合 create_time 后按用户名游标翻页只需扫描索引
+-- ----------------------------
+ALTER TABLE `tb_order`
+  ADD KEY `idx_username_create_time` (`username`,`create_time`) USING BTREE,
+  ADD KEY `idx_receiver_mobile` (`receiver_mobile`) USING BTREE,
+  ADD KEY `idx_shipping_code` (`shipping_code`) USING BTREE,
+  ADD KEY `idx_transaction_id` (`transaction_id`) USING BTREE;
@@ -0,0 +1,14 @@
+-- ----------------------------
+-- Table structure for tb_order_status_hourly
+-- 订单状态按小时统计，由 canal 监听 tb_order 变化增量维护，订单按 update_time 所在小时与当前状态计数
+-- 建表后执行 changgou_order_status_hourly_backfill.sql 回填历史数据
+-- ----------------------------
+DROP TABLE IF EXISTS `tb_order_status_hourly`;
+CREATE TABLE `tb_order_status_hourly` (
+  `stat_hour` datetime NOT NULL COMMENT '统计小时',
+  `order_status` char(1) COLLATE utf8_bin NOT NULL DEFAULT '' COMMENT '订单状态',
+  `pay_status` char(1) COLLATE utf8_bin NOT NULL DEFAULT '' COMMENT '支付状态',
+  `consign_status` char(1) COLLATE utf8_bin NOT NULL DEFAULT '' COMMENT '发货状态',
+  `num` int(11) NOT NULL DEFAULT '0' COMMENT '订单数',
+  PRIMARY KEY (`stat_hour`,`order_status`,`pay_status`,`consign_status`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8 COLLATE=utf8_bin COMMENT='订单状态按小时统计';
@@ -0,0 +1,23 @@
+-- ----------------------------
+-- Indexes for tb_order 订单状态统计
+-- 按小时重建统计时按 update_time 范围扫描订单，避免全表扫描
+-- ----------------------------
+ALTER TABLE `tb_order`
+  ADD KEY `idx_update_time` (`update_time`) USING BTREE;
+
+-- ----------------------------
+-- Backfill for tb_order_status_hourly
+-- 部署 canal 订单监听后执行，回填当前小时之前的历史统计，之后再开启 order.stat.rollup-enabled
+-- 当前小时已有增量写入，不在此回填，待该小时结束后调用 /order/stat/rebuild 重建该小时
+-- 订单量较大时可改为调用 /order/stat/rebuild 按小时分段重建，每小时单独提交事务
+-- ----------------------------
+SET @backfill_end = DATE_FORMAT(NOW(), '%Y-%m-%d %H:00:00');
+
+START TRANSACTION;
+DELETE FROM `tb_order_status_hourly` WHERE `stat_hour` < @backfill_end;
+INSERT INTO `tb_order_status_hourly` (`stat_hour`, `order_status`, `pay_status`, `consign_status`, `num`)
+SELECT DATE_FORMAT(`update_time`, '%Y-%m-%d %H:00:00'), IFNULL(`order_status`, ''), IFNULL(`pay_status`, ''), IFNULL(`consign_status`, ''), COUNT(*)
+FROM `tb_order`
+WHERE `update_time` < @backfill_end
+GROUP BY DATE_FORMAT(`update_time`, '%Y-%m-%d %H:00:00'), `order_status`, `pay_status`, `consign_status`;
+COMMIT;
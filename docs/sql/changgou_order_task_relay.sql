@@ -0,0 +1,10 @@
+-- ----------------------------
+-- Columns for tb_task 任务发送租约
+-- update_time 为任务下次可被领取的时间：领取时推迟到租约到期，发送成功后按 retry_count 指数退避等待用户服务回执
+-- claim_token 为领取批次标识，只有持有租约的实例可以修改任务状态
+-- ----------------------------
+ALTER TABLE `tb_task`
+  ADD COLUMN `claim_token` varchar(32) DEFAULT NULL COMMENT '领取批次标识',
+  ADD COLUMN `retry_count` int(11) NOT NULL DEFAULT '0' COMMENT '已发送次数',
+  ADD KEY `idx_update_time` (`update_time`) USING BTREE,
+  ADD KEY `idx_claim_token` (`claim_token`) USING BTREE;
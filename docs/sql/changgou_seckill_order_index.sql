@@ -0,0 +1,6 @@
+-- ----------------------------
+-- Indexes for tb_seckill_order
+-- 秒杀库存核对按 seckill_id 分组统计订单数，只扫描本批商品的索引范围
+-- ----------------------------
+ALTER TABLE `tb_seckill_order`
+  ADD KEY `idx_seckill_id` (`seckill_id`) USING BTREE;